@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+# Lanza N JVM en esta máquina, cada una generando su shard, y fusiona el resultado.
+# Uso: scripts/run_local_shards.sh [numShards] [dirSalida] [frames|metadata|both]
+# Requiere haber compilado antes (mvn compile); se ejecuta desde la raíz del proyecto.
+set -euo pipefail
+
+NUM_SHARDS=${1:-4}
+OUT_DIR=${2:-shards}
+WHAT=${3:-both}
+MAIN_CLASS=com.mycompany.procesamientoimagenespc04.ShardedGenerationCli
+JAVA_OPTS=${JAVA_OPTS:-"--add-modules jdk.incubator.vector"}
+
+CP_FILE=$(mktemp)
+trap 'rm -f "$CP_FILE"' EXIT
+mvn -q dependency:build-classpath -Dmdep.outputFile="$CP_FILE"
+CP="target/classes:$(cat "$CP_FILE")"
+
+mkdir -p "$OUT_DIR"
+java $JAVA_OPTS -cp "$CP" $MAIN_CLASS prepare
+
+pids=()
+for ((k = 0; k < NUM_SHARDS; k++)); do
+    java $JAVA_OPTS -cp "$CP" $MAIN_CLASS generate "$k" "$NUM_SHARDS" "$OUT_DIR" "$WHAT" \
+        > "$OUT_DIR/shard-$k.log" 2>&1 &
+    pids+=($!)
+done
+
+failed=0
+for ((k = 0; k < NUM_SHARDS; k++)); do
+    if ! wait "${pids[$k]}"; then
+        echo "El shard $k falló; ver $OUT_DIR/shard-$k.log" >&2
+        failed=1
+    fi
+done
+if [[ $failed -ne 0 ]]; then
+    exit 1
+fi
+
+java $JAVA_OPTS -cp "$CP" $MAIN_CLASS merge "$NUM_SHARDS" "$OUT_DIR" "$WHAT"
@@ -0,0 +1,203 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Controla cuántas tareas pueden estar en ejecución a la vez y ajusta ese límite según la presión
+ * de memoria y de trabajo pendiente (aumento aditivo, disminución multiplicativa):
+ *  - Si la ocupación del heap tras el último GC o la fracción de tiempo en pausas de GC superan sus
+ *    umbrales, el límite baja un 25% (como mínimo en 1).
+ *  - Si hay holgura de memoria, el límite está saturado y quedan tareas en cola, el límite sube en 1.
+ * El límite siempre queda entre minLimit y maxLimit, y cada ajuste se registra en la salida estándar.
+ *
+ * Uso: start() antes de la etapa, acquire()/release() alrededor de cada tarea, stop() al terminar.
+ */
+public class ConcurrencyGovernor {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long sampleIntervalMillis;
+    private final double heapHighWatermark; // Fracción del heap máximo a partir de la cual se reduce el límite.
+    private final double heapLowWatermark;  // Fracción del heap máximo por debajo de la cual se permite aumentarlo.
+    private final double gcPauseHighFraction; // Fracción del intervalo de muestreo en pausas de GC que se considera excesiva.
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private int limit; // Protegido por lock
+    private int inFlight; // Protegido por lock
+
+    private ScheduledExecutorService sampler;
+    private String stageName;
+    private IntSupplier queueDepth;
+    private long lastGcTimeMillis;
+
+    /**
+     * Crea un gobernador con umbrales por defecto: heap alto 85%, heap bajo 60%, pausas de GC 10%.
+     * @param minLimit Límite mínimo de tareas en ejecución.
+     * @param maxLimit Límite máximo de tareas en ejecución (y tamaño del pool de hilos que lo usa).
+     * @param initialLimit Límite inicial.
+     * @param sampleIntervalMillis Intervalo entre muestras de presión, en milisegundos.
+     */
+    public ConcurrencyGovernor(int minLimit, int maxLimit, int initialLimit, long sampleIntervalMillis) {
+        this(minLimit, maxLimit, initialLimit, sampleIntervalMillis, 0.85, 0.60, 0.10);
+    }
+
+    public ConcurrencyGovernor(int minLimit, int maxLimit, int initialLimit, long sampleIntervalMillis,
+                               double heapHighWatermark, double heapLowWatermark, double gcPauseHighFraction) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException(String.format("Límites de concurrencia inválidos: min=%d, max=%d.", minLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.sampleIntervalMillis = sampleIntervalMillis;
+        this.heapHighWatermark = heapHighWatermark;
+        this.heapLowWatermark = heapLowWatermark;
+        this.gcPauseHighFraction = gcPauseHighFraction;
+    }
+
+    public int getMinLimit() { return minLimit; }
+    public int getMaxLimit() { return maxLimit; }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empieza a muestrear la presión para una etapa.
+     * @param stageName Nombre de la etapa (solo para los mensajes de ajuste).
+     * @param queueDepth Número de tareas de la etapa que esperan para ejecutarse.
+     */
+    public synchronized void start(String stageName, IntSupplier queueDepth) {
+        stop();
+        this.stageName = stageName;
+        this.queueDepth = queueDepth;
+        this.lastGcTimeMillis = totalGcTimeMillis();
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "concurrency-governor");
+            t.setDaemon(true); // No impide que la JVM termine si alguien olvida llamar a stop()
+            return t;
+        });
+        sampler.scheduleAtFixedRate(this::sample, sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        System.out.println(String.format("Gobernador [%s]: límite inicial de concurrencia %d (rango %d-%d).", stageName, getLimit(), minLimit, maxLimit));
+    }
+
+    /**
+     * Deja de muestrear. El límite actual se conserva para la siguiente etapa.
+     */
+    public synchronized void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+        }
+    }
+
+    /**
+     * Bloquea hasta que el número de tareas en ejecución sea menor que el límite actual.
+     * @throws InterruptedException Si el hilo es interrumpido mientras espera.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= limit) {
+                permitAvailable.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Libera el permiso obtenido con acquire().
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Toma una muestra de presión y ajusta el límite si hace falta.
+    private void sample() {
+        double heapOccupancy = heapOccupancyAfterGc();
+        long gcTimeMillis = totalGcTimeMillis();
+        double gcFraction = (gcTimeMillis - lastGcTimeMillis) / (double) sampleIntervalMillis;
+        lastGcTimeMillis = gcTimeMillis;
+        int pending = queueDepth.getAsInt();
+
+        lock.lock();
+        try {
+            int oldLimit = limit;
+            String reason = null;
+            if (heapOccupancy > heapHighWatermark || gcFraction > gcPauseHighFraction) {
+                limit = Math.max(minLimit, Math.min(limit - 1, limit * 3 / 4));
+                reason = heapOccupancy > heapHighWatermark ? "presión de heap" : "pausas de GC";
+            } else if (heapOccupancy < heapLowWatermark && gcFraction < gcPauseHighFraction / 2
+                    && pending > 0 && inFlight >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+                reason = "tareas en cola con memoria disponible";
+            }
+            if (limit != oldLimit) {
+                System.out.println(String.format("Gobernador [%s]: límite de concurrencia %d -> %d por %s (heap=%.1f%%, GC=%.1f%%, en cola=%d, en ejecución=%d).",
+                        stageName, oldLimit, limit, reason, heapOccupancy * 100, gcFraction * 100, pending, inFlight));
+                if (limit > oldLimit) {
+                    permitAvailable.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ocupación del heap tras la última recolección (datos vivos), como fracción del heap máximo.
+    // Se usa el uso tras GC en lugar del uso actual para no reaccionar a basura que aún no se ha recogido.
+    // Mientras no haya habido ninguna recolección, el uso tras GC vale 0 y ocultaría la presión real,
+    // así que en ese caso se usa el uso actual (que, sin basura recogida, es una cota superior).
+    private static double heapOccupancyAfterGc() {
+        boolean collected = totalGcCount() > 0;
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            used += (collected && afterGc != null) ? afterGc.getUsed() : pool.getUsage().getUsed();
+        }
+        return used / (double) Runtime.getRuntime().maxMemory();
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount()); // -1 si el colector no lo soporta
+        }
+        return total;
+    }
+
+    private static long totalGcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime()); // -1 si el colector no lo soporta
+        }
+        return total;
+    }
+}
@@ -0,0 +1,90 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Distribuciones de IDs de frame para las pruebas de carga de reproducción.
+ * Los generadores devueltos son seguros para hilos y se pueden compartir entre clientes.
+ */
+public enum FrameIdDistribution {
+
+    // Todos los frames con la misma probabilidad.
+    UNIFORM {
+        @Override
+        public LongSupplier newGenerator(long totalFrames) {
+            return () -> ThreadLocalRandom.current().nextLong(totalFrames);
+        }
+    },
+
+    // Pocos frames muy solicitados (los IDs bajos), como en un visor donde ciertas zonas son populares.
+    ZIPFIAN {
+        @Override
+        public LongSupplier newGenerator(long totalFrames) {
+            return new ZipfianGenerator(totalFrames, ZIPFIAN_CONSTANT);
+        }
+    },
+
+    // Frames en orden 0, 1, 2, ... (vuelve a empezar al llegar al final), como una reproducción lineal.
+    SEQUENTIAL {
+        @Override
+        public LongSupplier newGenerator(long totalFrames) {
+            AtomicLong next = new AtomicLong(0);
+            return () -> Math.floorMod(next.getAndIncrement(), totalFrames);
+        }
+    };
+
+    // Exponente de la distribución Zipf (el mismo valor por defecto que usa YCSB).
+    static final double ZIPFIAN_CONSTANT = 0.99;
+
+    /**
+     * Crea un generador de IDs de frame en el rango [0, totalFrames).
+     * @param totalFrames Número total de frames disponibles.
+     * @return Un generador seguro para hilos.
+     */
+    public abstract LongSupplier newGenerator(long totalFrames);
+
+    /**
+     * Generador Zipf de tiempo constante por muestra (Gray et al., "Quickly Generating
+     * Billion-Record Synthetic Databases"). El cálculo de zeta(n) es O(n) y se hace una sola vez.
+     */
+    private static final class ZipfianGenerator implements LongSupplier {
+        private final long items;
+        private final double theta;
+        private final double alpha;
+        private final double zetan;
+        private final double eta;
+
+        ZipfianGenerator(long items, double theta) {
+            this.items = items;
+            this.theta = theta;
+            double zeta2 = zeta(2, theta);
+            this.zetan = zeta(items, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetan);
+        }
+
+        private static double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+
+        @Override
+        public long getAsLong() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)) {
+                return Math.min(1, items - 1);
+            }
+            long id = (long) (items * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(id, items - 1);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Lee un "frame pack" escrito por FramePackWriter.
+ * El índice se mapea en memoria, de modo que localizar el frame i es O(1): una lectura de
+ * 16 bytes en la posición HEADER_SIZE + i * ENTRY_SIZE, sin recorrer el archivo.
+ */
+public class FramePackReader implements Closeable {
+
+    // Un MappedByteBuffer está limitado a 2 GB, así que el índice se mapea por segmentos.
+    private static final long ENTRIES_PER_SEGMENT = 1L << 26; // 1 GB de entradas por segmento.
+
+    private final FileChannel dataChannel;
+    private final MappedByteBuffer[] indexSegments;
+    private final long firstFrameId;
+    private final long frameCount;
+
+    /**
+     * Abre un pack existente.
+     * @param dataPath Ruta del archivo de datos.
+     * @param indexPath Ruta del archivo de índice.
+     * @throws IOException Si los archivos no existen o el índice no es válido.
+     */
+    public FramePackReader(Path dataPath, Path indexPath) throws IOException {
+        try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FramePackWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (indexChannel.read(header, header.position()) < 0) {
+                    throw new IOException(String.format("Índice de frame pack truncado: %s", indexPath));
+                }
+            }
+            header.flip();
+            int magic = header.getInt();
+            int version = header.getInt();
+            if (magic != FramePackWriter.MAGIC || version != FramePackWriter.VERSION) {
+                throw new IOException(String.format("El archivo %s no es un índice de frame pack válido (magic=%08x, versión=%d).", indexPath, magic, version));
+            }
+            this.firstFrameId = header.getLong();
+            this.frameCount = header.getLong();
+            long expectedSize = FramePackWriter.HEADER_SIZE + frameCount * FramePackWriter.ENTRY_SIZE;
+            if (indexChannel.size() < expectedSize) {
+                throw new IOException(String.format("Índice de frame pack truncado: %s (%d bytes, se esperaban %d).", indexPath, indexChannel.size(), expectedSize));
+            }
+
+            int segments = (int) ((frameCount + ENTRIES_PER_SEGMENT - 1) / ENTRIES_PER_SEGMENT);
+            this.indexSegments = new MappedByteBuffer[segments];
+            for (int s = 0; s < segments; s++) {
+                long firstEntry = s * ENTRIES_PER_SEGMENT;
+                long entries = Math.min(ENTRIES_PER_SEGMENT, frameCount - firstEntry);
+                indexSegments[s] = indexChannel.map(FileChannel.MapMode.READ_ONLY,
+                        FramePackWriter.HEADER_SIZE + firstEntry * FramePackWriter.ENTRY_SIZE,
+                        entries * FramePackWriter.ENTRY_SIZE);
+                indexSegments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        // El mapeo sigue siendo válido después de cerrar el canal del índice.
+        this.dataChannel = FileChannel.open(dataPath, StandardOpenOption.READ);
+    }
+
+    public long getFirstFrameId() { return firstFrameId; }
+    public long getFrameCount() { return frameCount; }
+
+    /**
+     * Indica si el frame está presente en el pack (su entrada de índice tiene longitud mayor que 0).
+     */
+    public boolean hasFrame(long frameId) {
+        long slot = frameId - firstFrameId;
+        return slot >= 0 && slot < frameCount && entryLength(slot) > 0;
+    }
+
+    /**
+     * Devuelve los bytes codificados de un frame.
+     * @param frameId El ID (global) del frame.
+     * @return Los bytes del frame, o null si el frame no está en el pack.
+     * @throws IOException Si falla la lectura del archivo de datos.
+     */
+    public byte[] readFrameBytes(long frameId) throws IOException {
+        long slot = frameId - firstFrameId;
+        if (slot < 0 || slot >= frameCount) {
+            System.err.println(String.format("Error: ID de frame %d fuera de rango (%d a %d).", frameId, firstFrameId, firstFrameId + frameCount - 1));
+            return null;
+        }
+        long length = entryLength(slot);
+        if (length == 0) {
+            return null;
+        }
+        long offset = entryOffset(slot);
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (dataChannel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException(String.format("Archivo de datos truncado al leer el frame %d.", frameId));
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodifica y devuelve un frame.
+     * @param frameId El ID (global) del frame.
+     * @return El frame decodificado, o null si no está en el pack.
+     * @throws IOException Si falla la lectura o la decodificación.
+     */
+    public BufferedImage readFrame(long frameId) throws IOException {
+        byte[] bytes = readFrameBytes(frameId);
+        return bytes == null ? null : ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Extrae todos los frames del pack como archivos sueltos en un directorio.
+     * @param outputDir Directorio de destino.
+     * @return Número de frames extraídos.
+     * @throws IOException Si falla la lectura o la escritura.
+     */
+    public long extractToDirectory(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        long extracted = 0;
+        long endFrameId = firstFrameId + frameCount;
+        for (long id = firstFrameId; id < endFrameId; id++) {
+            byte[] bytes = readFrameBytes(id);
+            if (bytes != null) {
+                Files.write(outputDir.resolve(ImageUtils.frameFileName(id, endFrameId)), bytes);
+                extracted++;
+            }
+        }
+        return extracted;
+    }
+
+    /**
+     * Extrae todos los frames del pack a un archivo ZIP (los PNG se guardan sin recomprimir).
+     * @param zipPath Ruta del archivo ZIP de destino.
+     * @return Número de frames extraídos.
+     * @throws IOException Si falla la lectura o la escritura.
+     */
+    public long extractToZip(Path zipPath) throws IOException {
+        long extracted = 0;
+        long endFrameId = firstFrameId + frameCount;
+        try (FileOutputStream fos = new FileOutputStream(zipPath.toFile());
+             ZipOutputStream zipOut = new ZipOutputStream(fos)) {
+            for (long id = firstFrameId; id < endFrameId; id++) {
+                byte[] bytes = readFrameBytes(id);
+                if (bytes != null) {
+                    zipOut.putNextEntry(new ZipEntry(ImageUtils.frameFileName(id, endFrameId)));
+                    zipOut.write(bytes);
+                    zipOut.closeEntry();
+                    extracted++;
+                }
+            }
+        }
+        return extracted;
+    }
+
+    /**
+     * Cuenta los frames del rango del pack cuya entrada de índice está vacía (frames no escritos).
+     * Solo lee el índice, así que sirve para verificar un pack completo sin tocar el archivo de datos.
+     * @return Número de frames ausentes (0 si el pack está completo).
+     */
+    public long countMissingFrames() {
+        long missing = 0;
+        for (long slot = 0; slot < frameCount; slot++) {
+            if (entryLength(slot) == 0) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    // Tamaño del archivo de datos, para copiar el pack entero en otro (FramePackWriter.appendPack).
+    long getDataSize() throws IOException {
+        return dataChannel.size();
+    }
+
+    // Copia todo el archivo de datos en target a partir de targetPosition, sin pasar por el heap.
+    void transferDataTo(FileChannel target, long targetPosition) throws IOException {
+        long size = dataChannel.size();
+        long transferred = 0;
+        dataChannel.position(0); // transferFrom lee desde la posición actual del canal de origen.
+        while (transferred < size) {
+            long n = target.transferFrom(dataChannel, targetPosition + transferred, size - transferred);
+            if (n <= 0) {
+                throw new IOException("No se pudo copiar el archivo de datos del frame pack.");
+            }
+            transferred += n;
+        }
+    }
+
+    long entryOffset(long slot) {
+        return indexSegments[(int) (slot / ENTRIES_PER_SEGMENT)]
+                .getLong((int) (slot % ENTRIES_PER_SEGMENT) * FramePackWriter.ENTRY_SIZE);
+    }
+
+    long entryLength(long slot) {
+        return indexSegments[(int) (slot / ENTRIES_PER_SEGMENT)]
+                .getLong((int) (slot % ENTRIES_PER_SEGMENT) * FramePackWriter.ENTRY_SIZE + Long.BYTES);
+    }
+
+    @Override
+    public void close() throws IOException {
+        dataChannel.close();
+    }
+}
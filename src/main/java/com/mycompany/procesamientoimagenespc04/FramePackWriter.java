@@ -0,0 +1,148 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escribe un "frame pack": un único archivo de datos con los frames codificados concatenados
+ * y un archivo de índice de ancho fijo con el par (offset, longitud) de cada frame.
+ *
+ * Formato del índice (little-endian):
+ *   cabecera de HEADER_SIZE bytes: magic (int), versión (int), primer ID de frame (long), número de frames (long)
+ *   seguida de una entrada de ENTRY_SIZE bytes por frame: offset en el archivo de datos (long), longitud (long).
+ * Una entrada con longitud 0 indica un frame que todavía no se ha escrito.
+ *
+ * Todas las escrituras son posicionales sobre FileChannel, por lo que varios hilos pueden
+ * llamar a writeFrame() a la vez sin sincronización adicional.
+ */
+public class FramePackWriter implements Closeable {
+
+    static final int MAGIC = 0x46504B31; // "FPK1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24; // magic + versión + primer ID + número de frames
+    static final int ENTRY_SIZE = 16;  // offset (long) + longitud (long)
+
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final long firstFrameId; // ID del primer frame cubierto por el pack.
+    private final long frameCount;   // Número de frames cubiertos por el pack.
+    private final AtomicLong nextOffset = new AtomicLong(0); // Siguiente posición libre en el archivo de datos.
+
+    /**
+     * Crea (o trunca) los archivos de datos e índice de un pack que cubre los frames
+     * [firstFrameId, firstFrameId + frameCount).
+     * @param dataPath Ruta del archivo de datos.
+     * @param indexPath Ruta del archivo de índice.
+     * @param firstFrameId ID del primer frame del pack.
+     * @param frameCount Número de frames que cubre el pack.
+     * @throws IOException Si no se pueden crear los archivos.
+     */
+    public FramePackWriter(Path dataPath, Path indexPath, long firstFrameId, long frameCount) throws IOException {
+        this.firstFrameId = firstFrameId;
+        this.frameCount = frameCount;
+        this.dataChannel = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            this.indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            dataChannel.close();
+            throw e;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(firstFrameId).putLong(frameCount).flip();
+        writeFully(indexChannel, header, 0);
+        // Reserva el índice completo; las entradas sin escribir quedan a cero (longitud 0 = frame ausente).
+        long indexSize = HEADER_SIZE + frameCount * ENTRY_SIZE;
+        if (frameCount > 0) {
+            writeFully(indexChannel, ByteBuffer.allocate(1), indexSize - 1);
+        }
+    }
+
+    /**
+     * Añade un frame codificado al pack. Es seguro llamarlo desde varios hilos.
+     * @param frameId El ID (global) del frame.
+     * @param encodedFrame Los bytes codificados del frame (por ejemplo, PNG).
+     * @throws IOException Si falla la escritura.
+     */
+    public void writeFrame(long frameId, byte[] encodedFrame) throws IOException {
+        long slot = frameId - firstFrameId;
+        if (slot < 0 || slot >= frameCount) {
+            throw new IllegalArgumentException(String.format("ID de frame %d fuera del rango del pack [%d, %d).",
+                    frameId, firstFrameId, firstFrameId + frameCount));
+        }
+        // Reserva atómicamente la región del archivo de datos y escribe en ella sin bloquear a otros hilos.
+        long offset = nextOffset.getAndAdd(encodedFrame.length);
+        writeFully(dataChannel, ByteBuffer.wrap(encodedFrame), offset);
+
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putLong(offset).putLong(encodedFrame.length).flip();
+        writeFully(indexChannel, entry, HEADER_SIZE + slot * ENTRY_SIZE);
+    }
+
+    /**
+     * Copia en este pack todos los frames presentes en otro pack cuyo rango esté contenido en el de este.
+     * El archivo de datos se copia en bloque y las entradas del índice se desplazan, sin decodificar ni
+     * recodificar frames; así se fusionan los packs generados por shards en un único pack.
+     * @param part El pack a copiar.
+     * @return Número de frames copiados.
+     * @throws IOException Si falla la lectura o la escritura.
+     */
+    public long appendPack(FramePackReader part) throws IOException {
+        long partFirst = part.getFirstFrameId();
+        long partEnd = partFirst + part.getFrameCount();
+        if (partFirst < firstFrameId || partEnd > firstFrameId + frameCount) {
+            throw new IllegalArgumentException(String.format("El rango del pack [%d, %d) no está contenido en [%d, %d).",
+                    partFirst, partEnd, firstFrameId, firstFrameId + frameCount));
+        }
+        long base = nextOffset.getAndAdd(part.getDataSize());
+        part.transferDataTo(dataChannel, base);
+
+        // Reescribe las entradas del índice por bloques, con los offsets desplazados a la nueva posición.
+        ByteBuffer entries = ByteBuffer.allocate(ENTRY_SIZE * 4096).order(ByteOrder.LITTLE_ENDIAN);
+        long copied = 0;
+        long blockStart = 0;
+        for (long slot = 0; slot < part.getFrameCount(); slot++) {
+            long length = part.entryLength(slot);
+            entries.putLong(length == 0 ? 0 : base + part.entryOffset(slot)).putLong(length);
+            if (length > 0) {
+                copied++;
+            }
+            if (!entries.hasRemaining() || slot == part.getFrameCount() - 1) {
+                entries.flip();
+                writeFully(indexChannel, entries, HEADER_SIZE + (partFirst - firstFrameId + blockStart) * ENTRY_SIZE);
+                entries.clear();
+                blockStart = slot + 1;
+            }
+        }
+        return copied;
+    }
+
+    public long getFirstFrameId() { return firstFrameId; }
+    public long getFrameCount() { return frameCount; }
+
+    /**
+     * Escribe el buffer completo en la posición indicada (una escritura posicional puede ser parcial).
+     */
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            dataChannel.close();
+        } finally {
+            indexChannel.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.mycompany.procesamientoimagenespc04;
+
+/**
+ * Cadena de transformación fusionada para producir entradas de entrenamiento: recorte del frame,
+ * redimensionado bilineal, conversión de canales (gris o RGB) y normalización, todo en una sola
+ * pasada sobre los píxeles ARGB de la imagen principal, sin imágenes intermedias.
+ *
+ * La salida es float32 en disposición HxWxC:  valor = (canal / 255 - mean[c]) / std[c].
+ */
+public class FrameTensorTransform {
+
+    private final int outHeight;
+    private final int outWidth;
+    private final int channels; // 1 = gris, 3 = RGB
+    private final float[] scale;  // 1 / (255 * std[c])
+    private final float[] offset; // -mean[c] / std[c]
+
+    /**
+     * @param outHeight Altura de salida (m).
+     * @param outWidth Ancho de salida (n).
+     * @param channels 1 para gris o 3 para RGB.
+     * @param mean Media por canal en escala [0, 1] (longitud 1 o igual a channels).
+     * @param std Desviación típica por canal en escala [0, 1] (longitud 1 o igual a channels).
+     */
+    public FrameTensorTransform(int outHeight, int outWidth, int channels, float[] mean, float[] std) {
+        if (outHeight <= 0 || outWidth <= 0) {
+            throw new IllegalArgumentException(String.format("Tamaño de salida inválido: %dx%d.", outWidth, outHeight));
+        }
+        if (channels != 1 && channels != 3) {
+            throw new IllegalArgumentException("El número de canales debe ser 1 (gris) o 3 (RGB): " + channels);
+        }
+        this.outHeight = outHeight;
+        this.outWidth = outWidth;
+        this.channels = channels;
+        this.scale = new float[channels];
+        this.offset = new float[channels];
+        for (int c = 0; c < channels; c++) {
+            float m = mean[mean.length == 1 ? 0 : c];
+            float s = std[std.length == 1 ? 0 : c];
+            scale[c] = 1f / (255f * s);
+            offset[c] = -m / s;
+        }
+    }
+
+    public int getOutHeight() { return outHeight; }
+    public int getOutWidth() { return outWidth; }
+    public int getChannels() { return channels; }
+
+    /**
+     * Número de floats que ocupa un frame transformado.
+     */
+    public int getFrameSize() {
+        return outHeight * outWidth * channels;
+    }
+
+    /**
+     * Aplica la transformación a la ventana (x, y, w, h) de la imagen principal.
+     * @param src Píxeles ARGB de la imagen principal.
+     * @param srcWidth Ancho de la imagen principal.
+     * @param dst Destino; se escriben getFrameSize() floats a partir de dstOffset.
+     * @throws IllegalArgumentException Si la ventana no cabe en la imagen o el destino no tiene espacio.
+     */
+    public void apply(int[] src, int srcWidth, int x, int y, int w, int h, float[] dst, int dstOffset) {
+        // Misma validación que PixelKernels: sin ella, una imagen más estrecha que la declarada haría que
+        // los índices pasaran a la fila siguiente y el tensor contendría píxeles desplazados sin ningún error.
+        if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > srcWidth || (long) (y + h) * srcWidth > src.length) {
+            throw new IllegalArgumentException(String.format("Ventana inválida: x=%d, y=%d, ancho=%d, alto=%d para una imagen de ancho %d y %d píxeles.",
+                    x, y, w, h, srcWidth, src.length));
+        }
+        if (dstOffset < 0 || dstOffset + getFrameSize() > dst.length) {
+            throw new IllegalArgumentException(String.format("El destino (%d floats desde %d) no tiene espacio para %d floats.", dst.length, dstOffset, getFrameSize()));
+        }
+
+        // Correspondencia de centros de píxel (como cv2.resize / PIL): sx = (ox + 0.5) * w / outWidth - 0.5.
+        // Si la salida tiene el tamaño de la ventana, los pesos son 0 y el resultado es una copia exacta.
+        int[] x0 = new int[outWidth];
+        int[] x1 = new int[outWidth];
+        float[] fx = new float[outWidth];
+        for (int ox = 0; ox < outWidth; ox++) {
+            float sx = Math.max(0f, (ox + 0.5f) * w / outWidth - 0.5f);
+            x0[ox] = Math.min((int) sx, w - 1);
+            x1[ox] = Math.min(x0[ox] + 1, w - 1);
+            fx[ox] = sx - (int) sx;
+        }
+
+        int d = dstOffset;
+        for (int oy = 0; oy < outHeight; oy++) {
+            float sy = Math.max(0f, (oy + 0.5f) * h / outHeight - 0.5f);
+            int y0 = Math.min((int) sy, h - 1);
+            int y1 = Math.min(y0 + 1, h - 1);
+            float fy = sy - (int) sy;
+            int row0 = (y + y0) * srcWidth + x;
+            int row1 = (y + y1) * srcWidth + x;
+
+            for (int ox = 0; ox < outWidth; ox++) {
+                int p00 = src[row0 + x0[ox]];
+                int p01 = src[row0 + x1[ox]];
+                int p10 = src[row1 + x0[ox]];
+                int p11 = src[row1 + x1[ox]];
+                float w00 = (1 - fx[ox]) * (1 - fy);
+                float w01 = fx[ox] * (1 - fy);
+                float w10 = (1 - fx[ox]) * fy;
+                float w11 = fx[ox] * fy;
+
+                float r = w00 * ((p00 >> 16) & 0xFF) + w01 * ((p01 >> 16) & 0xFF) + w10 * ((p10 >> 16) & 0xFF) + w11 * ((p11 >> 16) & 0xFF);
+                float g = w00 * ((p00 >> 8) & 0xFF) + w01 * ((p01 >> 8) & 0xFF) + w10 * ((p10 >> 8) & 0xFF) + w11 * ((p11 >> 8) & 0xFF);
+                float b = w00 * (p00 & 0xFF) + w01 * (p01 & 0xFF) + w10 * (p10 & 0xFF) + w11 * (p11 & 0xFF);
+
+                if (channels == 1) {
+                    // Mismos coeficientes BT.601 que PixelKernels.
+                    float gray = (PixelKernels.GRAY_R * r + PixelKernels.GRAY_G * g + PixelKernels.GRAY_B * b) / 256f;
+                    dst[d++] = gray * scale[0] + offset[0];
+                } else {
+                    dst[d++] = r * scale[0] + offset[0];
+                    dst[d++] = g * scale[1] + offset[1];
+                    dst[d++] = b * scale[2] + offset[2];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pirámide multirresolución de la imagen principal: el nivel 0 es la imagen original y cada nivel L
+ * se obtiene del anterior promediando bloques de 2x2 píxeles, de modo que mide (ancho >> L) x (alto >> L).
+ * Los niveles se guardan como PNG en un directorio junto a los metadatos, con un descriptor JSON
+ * (DESCRIPTOR_FILE); se construye una vez por imagen y se reconstruye si la imagen cambia.
+ *
+ * Un frame a escala s se recorta del nivel más pequeño cuya resolución sigue siendo al menos s
+ * (2^-L >= s), así que las peticiones con poco zoom leen y recortan una imagen mucho menor.
+ */
+public class ImagePyramid {
+
+    public static final String DESCRIPTOR_FILE = "pyramid.json";
+
+    public String sourcePath;        // Ruta de la imagen original (nivel 0)
+    public long sourceSize;          // Tamaño en bytes y fecha de modificación de la imagen original,
+    public long sourceLastModified;  // para detectar si la pirámide está desactualizada
+    public List<Level> levels = new ArrayList<>(); // Niveles en orden, empezando por el 0
+
+    @JsonIgnore
+    private Path directory; // Directorio de la pirámide (los archivos de los niveles son relativos a él)
+    @JsonIgnore
+    private BufferedImage[] loadedLevels; // Niveles ya decodificados, cargados bajo demanda
+
+    // Descripción de un nivel: archivo (relativo al directorio de la pirámide) y dimensiones.
+    public static class Level {
+        public int level;
+        public String file;
+        public int width;
+        public int height;
+
+        // Constructor por defecto para Jackson
+        public Level() {}
+
+        public Level(int level, String file, int width, int height) {
+            this.level = level;
+            this.file = file;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    // Constructor por defecto para Jackson
+    public ImagePyramid() {}
+
+    /**
+     * Directorio de la pirámide de una imagen, junto al archivo de metadatos:
+     * por ejemplo "main_image.jpg" -> "main_image_pyramid" en el directorio de "virtual_frames_metadata.json".
+     */
+    public static Path directoryFor(String imagePath, String metadataFile) {
+        String name = new File(imagePath).getName();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        return new File(metadataFile).getAbsoluteFile().toPath().resolveSibling(stem + "_pyramid");
+    }
+
+    /**
+     * Carga la pirámide del directorio o, si no existe o no corresponde a la imagen actual, la construye.
+     * @param imagePath Ruta de la imagen original.
+     * @param directory Directorio de la pirámide.
+     * @return La pirámide lista para usar.
+     * @throws IOException Si no se puede leer la imagen o escribir los niveles.
+     */
+    public static ImagePyramid loadOrBuild(String imagePath, Path directory) throws IOException {
+        Path descriptor = directory.resolve(DESCRIPTOR_FILE);
+        if (Files.exists(descriptor)) {
+            ImagePyramid pyramid = new ObjectMapper().readValue(descriptor.toFile(), ImagePyramid.class);
+            File source = new File(imagePath);
+            if (imagePath.equals(pyramid.sourcePath) && source.length() == pyramid.sourceSize
+                    && source.lastModified() == pyramid.sourceLastModified) {
+                pyramid.directory = directory;
+                pyramid.loadedLevels = new BufferedImage[pyramid.levels.size()];
+                return pyramid;
+            }
+            System.out.println(String.format("La pirámide de %s está desactualizada; se reconstruye.", imagePath));
+        }
+        return build(imagePath, directory);
+    }
+
+    /**
+     * Construye la pirámide completa (hasta que un lado mida 1 píxel) y la guarda en el directorio.
+     * @param imagePath Ruta de la imagen original.
+     * @param directory Directorio de la pirámide.
+     * @return La pirámide construida, con todos sus niveles ya cargados.
+     * @throws IOException Si no se puede leer la imagen o escribir los niveles.
+     */
+    public static ImagePyramid build(String imagePath, Path directory) throws IOException {
+        long startTime = System.currentTimeMillis();
+        File source = new File(imagePath);
+        BufferedImage image = ImageIO.read(source);
+        if (image == null) {
+            throw new IOException(String.format("La imagen principal '%s' no pudo ser cargada.", imagePath));
+        }
+        Files.createDirectories(directory);
+
+        ImagePyramid pyramid = new ImagePyramid();
+        pyramid.sourcePath = imagePath;
+        pyramid.sourceSize = source.length();
+        pyramid.sourceLastModified = source.lastModified();
+        pyramid.directory = directory;
+        List<BufferedImage> images = new ArrayList<>();
+        // El nivel 0 es la propia imagen original; no se duplica en el directorio. Como los demás niveles, su ruta
+        // es relativa al directorio de la pirámide (por ejemplo "../main_image.jpg"), así se pueden mover juntos.
+        String sourceFile = directory.toAbsolutePath().normalize().relativize(source.getAbsoluteFile().toPath().normalize()).toString();
+        pyramid.levels.add(new Level(0, sourceFile, image.getWidth(), image.getHeight()));
+        images.add(image);
+
+        while (image.getWidth() >= 2 && image.getHeight() >= 2) {
+            image = downsample2x(image);
+            int level = images.size();
+            String file = String.format("level_%02d.png", level);
+            ImageIO.write(image, "png", directory.resolve(file).toFile());
+            pyramid.levels.add(new Level(level, file, image.getWidth(), image.getHeight()));
+            images.add(image);
+        }
+        // El descriptor se escribe al final: si la construcción se interrumpe, la pirámide no se da por válida.
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(directory.resolve(DESCRIPTOR_FILE).toFile(), pyramid);
+        pyramid.loadedLevels = images.toArray(new BufferedImage[0]);
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Pirámide de %s construida con %d niveles en %s (%.2f segundos).",
+                imagePath, pyramid.levels.size(), directory, (endTime - startTime) / 1000.0));
+        return pyramid;
+    }
+
+    /**
+     * Reduce una imagen a la mitad promediando cada bloque de 2x2 píxeles (filtro de caja).
+     * Si un lado es impar, la última fila o columna se descarta, así el nivel L mide exactamente (lado >> L).
+     */
+    static BufferedImage downsample2x(BufferedImage image) {
+        int srcWidth = image.getWidth();
+        int width = srcWidth / 2;
+        int height = image.getHeight() / 2;
+        int[] src = ImageUtils.getArgbPixels(image);
+        boolean alpha = image.getColorModel().hasAlpha();
+        BufferedImage out = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] dst = ImageUtils.getArgbPixels(out);
+
+        for (int y = 0; y < height; y++) {
+            int row0 = 2 * y * srcWidth;
+            int row1 = row0 + srcWidth;
+            for (int x = 0; x < width; x++) {
+                int p00 = src[row0 + 2 * x];
+                int p01 = src[row0 + 2 * x + 1];
+                int p10 = src[row1 + 2 * x];
+                int p11 = src[row1 + 2 * x + 1];
+                int pixel = 0;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int sum = ((p00 >>> shift) & 0xFF) + ((p01 >>> shift) & 0xFF) + ((p10 >>> shift) & 0xFF) + ((p11 >>> shift) & 0xFF);
+                    pixel |= ((sum + 2) >> 2) << shift; // Media redondeada de los 4 píxeles
+                }
+                dst[y * width + x] = alpha ? pixel : pixel | 0xFF000000;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Elige el nivel para una escala: el más pequeño cuya resolución (2^-L) sigue siendo al menos la pedida.
+     * Escalas mayores que 1 usan el nivel 0.
+     */
+    public int chooseLevel(double scale) {
+        int level = 0;
+        while (level + 1 < levels.size() && 1.0 / (1L << (level + 1)) >= scale) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Devuelve la imagen de un nivel, leyéndola del directorio la primera vez.
+     */
+    public synchronized BufferedImage getLevelImage(int level) throws IOException {
+        if (loadedLevels[level] == null) {
+            File file = directory.resolve(levels.get(level).file).toFile();
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException(String.format("No se pudo leer el nivel %d de la pirámide (%s).", level, file));
+            }
+            loadedLevels[level] = image;
+        }
+        return loadedLevels[level];
+    }
+
+    /**
+     * Recorta una región de la imagen original a una escala dada usando el nivel más cercano de la pirámide.
+     * El origen y el tamaño se dividen por 2^L redondeando al entero más cercano, así que a una escala
+     * exacta 2^-L el resultado es un recorte directo del nivel; con otras escalas el recorte (ya pequeño)
+     * se redimensiona con interpolación bilineal al tamaño final.
+     * @param x Coordenada x de la región en la imagen original.
+     * @param y Coordenada y de la región en la imagen original.
+     * @param width Ancho de la región en la imagen original.
+     * @param height Altura de la región en la imagen original.
+     * @param scale Escala deseada (por ejemplo 0.25 para un cuarto del tamaño).
+     * @return La región con tamaño round(width * scale) x round(height * scale) (al menos 1x1).
+     * @throws IOException Si no se puede leer el nivel elegido.
+     */
+    public BufferedImage crop(int x, int y, int width, int height, double scale) throws IOException {
+        int outWidth = Math.max(1, (int) Math.round(width * scale));
+        int outHeight = Math.max(1, (int) Math.round(height * scale));
+        int level = chooseLevel(scale);
+        BufferedImage levelImage = getLevelImage(level);
+
+        // Región en el nivel: origen round(x / 2^L) y tamaño round(ancho / 2^L) (al menos 1 píxel), desplazada
+        // hacia dentro si se sale del nivel. Si la imagen no mide un múltiplo de 2^L, la última columna/fila
+        // se descartó al reducirla, y un frame del borde derecho o inferior puede caer justo sobre ella.
+        int half = (1 << level) >> 1;
+        int regionWidth = Math.min(levelImage.getWidth(), Math.max(1, (width + half) >> level));
+        int regionHeight = Math.min(levelImage.getHeight(), Math.max(1, (height + half) >> level));
+        int x0 = Math.max(0, Math.min((x + half) >> level, levelImage.getWidth() - regionWidth));
+        int y0 = Math.max(0, Math.min((y + half) >> level, levelImage.getHeight() - regionHeight));
+        BufferedImage region = levelImage.getSubimage(x0, y0, regionWidth, regionHeight);
+        if (region.getWidth() == outWidth && region.getHeight() == outHeight) {
+            return region;
+        }
+
+        BufferedImage scaled = new BufferedImage(outWidth, outHeight,
+                levelImage.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(region, 0, 0, outWidth, outHeight, null);
+        g.dispose();
+        return scaled;
+    }
+
+    @JsonIgnore
+    public Path getDirectory() {
+        return directory;
+    }
+}
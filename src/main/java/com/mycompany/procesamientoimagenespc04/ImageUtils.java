@@ -3,6 +3,10 @@ package com.mycompany.procesamientoimagenespc04;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -84,6 +88,51 @@ public class ImageUtils {
         return new int[]{x, y};
     }
 
+    /**
+     * Construye el nombre de archivo de un frame, rellenando el índice con ceros de modo que
+     * el orden alfabético coincida con el orden numérico (al menos 5 dígitos, como frame_00000.png).
+     * @param frameIdx El índice del frame.
+     * @param totalFrames Número total de frames (determina el ancho del relleno).
+     * @return El nombre del archivo, por ejemplo "frame_00042.png".
+     */
+    public static String frameFileName(long frameIdx, long totalFrames) {
+        int digits = Math.max(5, Long.toString(Math.max(totalFrames - 1, 0)).length());
+        return String.format("frame_%0" + digits + "d.png", frameIdx);
+    }
+
+    /**
+     * Codifica una imagen como PNG en memoria.
+     * @param image La imagen a codificar.
+     * @return Los bytes PNG de la imagen.
+     * @throws IOException Si falla la codificación.
+     */
+    public static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Devuelve los píxeles de una imagen como un array int ARGB de ancho * alto elementos.
+     * Si la imagen ya está almacenada así (TYPE_INT_RGB/TYPE_INT_ARGB sin recortes), se devuelve el
+     * array interno sin copiarlo; en otro caso se convierte con getRGB().
+     * @param image La imagen de origen.
+     * @return Los píxeles ARGB en orden de filas (no se deben modificar).
+     */
+    public static int[] getArgbPixels(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+                && raster.getParent() == null
+                && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getDataBuffer().getNumBanks() == 1
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == image.getWidth()) {
+            return ((DataBufferInt) raster.getDataBuffer()).getData();
+        }
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
     /**
      * Crea un directorio si no existe.
      * @param path La ruta del directorio a crear.
@@ -0,0 +1,144 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.io.PrintStream;
+
+/**
+ * Histograma de latencias al estilo HdrHistogram: buckets log-lineales con precisión relativa
+ * constante (~0.1%, 1024 sub-buckets por potencia de 2) y memoria fija, independientemente
+ * del número de muestras registradas. Los valores se registran en nanosegundos.
+ *
+ * No es seguro para hilos: cada hilo debe registrar en su propio histograma y el resultado
+ * se combina al final con add().
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_COUNT_MAGNITUDE = 11;
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = SUB_BUCKET_COUNT_MAGNITUDE - 1;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE; // 1024
+    private static final long SUB_BUCKET_MASK = (1L << SUB_BUCKET_COUNT_MAGNITUDE) - 1;    // 2047
+
+    private final long highestTrackableValue;
+    private final long[] counts;
+    private long totalCount;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue;
+    private double sum;
+
+    /**
+     * @param highestTrackableValue Mayor valor registrable (en ns); los valores superiores se saturan a este.
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue < 2 * SUB_BUCKET_HALF_COUNT) {
+            throw new IllegalArgumentException("highestTrackableValue debe ser al menos " + 2 * SUB_BUCKET_HALF_COUNT);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[countsIndex(highestTrackableValue) + 1];
+    }
+
+    /**
+     * Registra una muestra.
+     * @param value Latencia en nanosegundos.
+     */
+    public void recordValue(long value) {
+        long v = Math.min(Math.max(value, 0), highestTrackableValue);
+        counts[countsIndex(v)]++;
+        totalCount++;
+        minValue = Math.min(minValue, v);
+        maxValue = Math.max(maxValue, v);
+        sum += v;
+    }
+
+    /**
+     * Registra una muestra corrigiendo la omisión coordinada: si la muestra superó el intervalo
+     * esperado entre peticiones, se añaden las muestras que un generador que no se hubiera
+     * bloqueado habría observado (value - intervalo, value - 2*intervalo, ...).
+     * @param value Latencia en nanosegundos.
+     * @param expectedIntervalBetweenValueSamples Intervalo esperado entre peticiones (ns); 0 desactiva la corrección.
+     */
+    public void recordValueWithExpectedInterval(long value, long expectedIntervalBetweenValueSamples) {
+        recordValue(value);
+        if (expectedIntervalBetweenValueSamples <= 0) {
+            return;
+        }
+        for (long missing = value - expectedIntervalBetweenValueSamples; missing >= expectedIntervalBetweenValueSamples;
+             missing -= expectedIntervalBetweenValueSamples) {
+            recordValue(missing);
+        }
+    }
+
+    /**
+     * Suma en este histograma las muestras de otro con el mismo rango.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Los histogramas deben tener el mismo rango para combinarse.");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+        sum += other.sum;
+    }
+
+    public long getTotalCount() { return totalCount; }
+    public long getMinValue() { return totalCount == 0 ? 0 : minValue; }
+    public long getMaxValue() { return maxValue; }
+    public double getMean() { return totalCount == 0 ? 0 : sum / totalCount; }
+
+    /**
+     * Devuelve el valor por debajo del cual se encuentra el percentil indicado de las muestras.
+     * @param percentile Percentil entre 0 y 100.
+     * @return El valor (ns), con la precisión de un bucket.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long runningCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            runningCount += counts[i];
+            if (runningCount >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Imprime un resumen de percentiles en milisegundos.
+     * @param out Flujo de salida.
+     * @param title Título del resumen.
+     */
+    public void printSummary(PrintStream out, String title) {
+        out.println(String.format("%s: n=%d, media=%.3f ms, min=%.3f ms, p50=%.3f ms, p90=%.3f ms, p99=%.3f ms, p99.9=%.3f ms, max=%.3f ms",
+                title, totalCount, getMean() / 1e6, getMinValue() / 1e6,
+                getValueAtPercentile(50) / 1e6, getValueAtPercentile(90) / 1e6, getValueAtPercentile(99) / 1e6,
+                getValueAtPercentile(99.9) / 1e6, getMaxValue() / 1e6));
+    }
+
+    // Índice del bucket (potencia de 2) al que pertenece el valor.
+    private static int bucketIndex(long value) {
+        return (64 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK)) - SUB_BUCKET_COUNT_MAGNITUDE;
+    }
+
+    private static int countsIndex(long value) {
+        int bucketIndex = bucketIndex(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    // Mayor valor que cae en la misma posición del array de conteos.
+    private static long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        long lowest = (long) subBucketIndex << bucketIndex;
+        return lowest + (1L << bucketIndex) - 1;
+    }
+}
@@ -0,0 +1,212 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Generador de carga para la reproducción de frames virtuales.
+ *
+ * Modos:
+ *  - OPEN_LOOP: las peticiones llegan a una tasa objetivo fija, independientemente de lo que tarden
+ *    las anteriores. La latencia se mide desde el instante en que la petición *debía* enviarse, así que
+ *    el tiempo de espera en cola se contabiliza (sin omisión coordinada).
+ *  - CLOSED_LOOP: N clientes envían una petición, esperan la respuesta y envían la siguiente. Si se fija
+ *    una tasa por cliente, las muestras se corrigen con recordValueWithExpectedInterval().
+ *
+ * Se registran dos histogramas: tiempo de respuesta (lo que ve el cliente) y tiempo de servicio
+ * (solo la ejecución de la operación).
+ */
+public class LoadGenerator {
+
+    public enum Mode { OPEN_LOOP, CLOSED_LOOP }
+
+    /**
+     * Operación que se mide en cada petición.
+     */
+    @FunctionalInterface
+    public interface FrameOperation {
+        void reproduce(long frameId) throws Exception;
+    }
+
+    private static final long HIGHEST_TRACKABLE_LATENCY_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final Mode mode;
+    private final int concurrency; // Hilos trabajadores (lazo abierto) o clientes (lazo cerrado).
+    private final double targetRatePerSecond; // Lazo abierto: tasa total. Lazo cerrado: tasa por cliente (0 = sin pausa).
+    private final long requestCount; // Número total de peticiones.
+    private final FrameIdDistribution distribution;
+
+    public LoadGenerator(Mode mode, int concurrency, double targetRatePerSecond, long requestCount, FrameIdDistribution distribution) {
+        if (concurrency <= 0 || requestCount <= 0) {
+            throw new IllegalArgumentException("La concurrencia y el número de peticiones deben ser positivos.");
+        }
+        if (mode == Mode.OPEN_LOOP && targetRatePerSecond <= 0) {
+            throw new IllegalArgumentException("El modo de lazo abierto necesita una tasa objetivo positiva.");
+        }
+        this.mode = mode;
+        this.concurrency = concurrency;
+        this.targetRatePerSecond = targetRatePerSecond;
+        this.requestCount = requestCount;
+        this.distribution = distribution;
+    }
+
+    public Mode getMode() { return mode; }
+    public int getConcurrency() { return concurrency; }
+    public double getTargetRatePerSecond() { return targetRatePerSecond; }
+    public long getRequestCount() { return requestCount; }
+    public FrameIdDistribution getDistribution() { return distribution; }
+
+    /**
+     * Resultado de una prueba de carga.
+     */
+    public static class Result {
+        public final LatencyHistogram responseTime = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_NANOS);
+        public final LatencyHistogram serviceTime = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_NANOS);
+        public long errors;
+        public long elapsedNanos;
+
+        public double getThroughputPerSecond() {
+            return elapsedNanos == 0 ? 0 : serviceTime.getTotalCount() / (elapsedNanos / 1e9);
+        }
+
+        public void printSummary() {
+            System.out.println(String.format("Peticiones: %d, errores: %d, duración: %.2f s, rendimiento: %.1f peticiones/s",
+                    serviceTime.getTotalCount(), errors, elapsedNanos / 1e9, getThroughputPerSecond()));
+            responseTime.printSummary(System.out, "Tiempo de respuesta");
+            serviceTime.printSummary(System.out, "Tiempo de servicio");
+        }
+    }
+
+    // Histogramas propios de cada hilo; se combinan al final para no compartir estado en la ruta caliente.
+    private static class ThreadRecorder {
+        final LatencyHistogram responseTime = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_NANOS);
+        final LatencyHistogram serviceTime = new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_NANOS);
+    }
+
+    /**
+     * Ejecuta la prueba de carga.
+     * @param totalFrames Número de frames disponibles (rango de IDs).
+     * @param operation Operación a medir para cada ID.
+     * @return Los histogramas y contadores de la prueba.
+     * @throws InterruptedException Si el hilo que ejecuta la prueba es interrumpido.
+     */
+    public Result run(long totalFrames, FrameOperation operation) throws InterruptedException {
+        LongSupplier frameIds = distribution.newGenerator(totalFrames);
+        ConcurrentLinkedQueue<ThreadRecorder> recorders = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong(0);
+
+        long startTime = System.nanoTime();
+        if (mode == Mode.OPEN_LOOP) {
+            runOpenLoop(frameIds, operation, recorders, errors);
+        } else {
+            runClosedLoop(frameIds, operation, recorders, errors);
+        }
+
+        Result result = new Result();
+        result.elapsedNanos = System.nanoTime() - startTime;
+        result.errors = errors.get();
+        for (ThreadRecorder recorder : recorders) {
+            result.responseTime.add(recorder.responseTime);
+            result.serviceTime.add(recorder.serviceTime);
+        }
+        return result;
+    }
+
+    private void runOpenLoop(LongSupplier frameIds, FrameOperation operation,
+                             ConcurrentLinkedQueue<ThreadRecorder> recorders, AtomicLong errors) throws InterruptedException {
+        ThreadLocal<ThreadRecorder> localRecorder = ThreadLocal.withInitial(() -> {
+            ThreadRecorder recorder = new ThreadRecorder();
+            recorders.add(recorder);
+            return recorder;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long intervalNanos = (long) (1e9 / targetRatePerSecond);
+        long startTime = System.nanoTime();
+        try {
+            for (long i = 0; i < requestCount; i++) {
+                // El instante de envío depende solo del calendario, no de cuándo terminaron las peticiones previas.
+                long intendedStart = startTime + i * intervalNanos;
+                waitUntil(intendedStart);
+                long frameId = frameIds.getAsLong();
+                executor.execute(() -> {
+                    ThreadRecorder recorder = localRecorder.get();
+                    long serviceStart = System.nanoTime();
+                    try {
+                        operation.reproduce(frameId);
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    long end = System.nanoTime();
+                    recorder.responseTime.recordValue(end - intendedStart);
+                    recorder.serviceTime.recordValue(end - serviceStart);
+                });
+            }
+        } finally {
+            // Las tareas pendientes se completan; los hilos terminan en cuanto la cola del ejecutor queda vacía.
+            executor.shutdown();
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private void runClosedLoop(LongSupplier frameIds, FrameOperation operation,
+                               ConcurrentLinkedQueue<ThreadRecorder> recorders, AtomicLong errors) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long intervalNanos = targetRatePerSecond > 0 ? (long) (1e9 / targetRatePerSecond) : 0;
+        try {
+            for (int c = 0; c < concurrency; c++) {
+                // Reparte las peticiones entre los clientes; los primeros absorben el resto de la división.
+                long clientRequests = requestCount / concurrency + (c < requestCount % concurrency ? 1 : 0);
+                executor.execute(() -> {
+                    ThreadRecorder recorder = new ThreadRecorder();
+                    recorders.add(recorder);
+                    try {
+                        long nextStart = System.nanoTime();
+                        for (long i = 0; i < clientRequests; i++) {
+                            if (intervalNanos > 0) {
+                                waitUntil(nextStart);
+                                nextStart += intervalNanos;
+                            }
+                            long frameId = frameIds.getAsLong();
+                            long serviceStart = System.nanoTime();
+                            try {
+                                operation.reproduce(frameId);
+                            } catch (Exception e) {
+                                errors.incrementAndGet();
+                            }
+                            long serviceTime = System.nanoTime() - serviceStart;
+                            recorder.serviceTime.recordValue(serviceTime);
+                            recorder.responseTime.recordValueWithExpectedInterval(serviceTime, intervalNanos);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    // Bloquea hasta el instante indicado (parkNanos puede despertar antes de tiempo).
+    private static void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("modo=%s, concurrencia=%d, tasa=%.1f/s, peticiones=%d, distribución=%s",
+                mode, concurrency, targetRatePerSecond, requestCount, distribution);
+    }
+}
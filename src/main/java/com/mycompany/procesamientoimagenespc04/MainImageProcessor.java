@@ -16,8 +16,15 @@ public class MainImageProcessor {
     public static final String PHYSICAL_FRAMES_DIR = "physical_frames"; // Directorio de salida para frames.
     // Ruta del archivo ZIP donde se comprimirán los frames físicos.
     public static final String COMPRESSED_ARCHIVE_PATH = "physical_frames.zip"; // Archivo comprimido.
+    // Rutas del frame pack: un archivo de datos con los PNG concatenados y su índice de ancho fijo.
+    public static final String FRAME_PACK_DATA_PATH = "physical_frames.pack"; // Datos del frame pack.
+    public static final String FRAME_PACK_INDEX_PATH = "physical_frames.idx"; // Índice del frame pack.
     // Ruta del archivo JSON que almacenará los metadatos de los frames virtuales.
     public static final String VIRTUAL_METADATA_FILE = "virtual_frames_metadata.json"; // Archivo de metadatos.
+    // Directorio de los lotes de tensores (.npy) generados para entrenamiento.
+    public static final String TENSOR_BATCHES_DIR = "tensor_batches"; // Directorio de lotes de tensores.
+    // Flujo de vídeo Y4M sin comprimir con todos los frames en orden de ID.
+    public static final String Y4M_STREAM_PATH = "physical_frames.y4m"; // Flujo Y4M.
 
     // Dimensiones de la imagen principal (valores de ejemplo, reemplaza con el tamaño real de tu imagen).
     // M_MAIN (Altura) y N_MAIN (Ancho) definen las dimensiones de la *imagen principal*.
@@ -44,6 +51,11 @@ public class MainImageProcessor {
         ImageUtils.deleteDirectory(Paths.get(PHYSICAL_FRAMES_DIR));
         ImageUtils.deleteFile(Paths.get(COMPRESSED_ARCHIVE_PATH));
         ImageUtils.deleteFile(Paths.get(VIRTUAL_METADATA_FILE));
+        ImageUtils.deleteFile(Paths.get(FRAME_PACK_DATA_PATH));
+        ImageUtils.deleteFile(Paths.get(FRAME_PACK_INDEX_PATH));
+        ImageUtils.deleteDirectory(Paths.get(TENSOR_BATCHES_DIR));
+        ImageUtils.deleteFile(Paths.get(Y4M_STREAM_PATH));
+        ImageUtils.deleteDirectory(ImagePyramid.directoryFor(MAIN_IMAGE_PATH, VIRTUAL_METADATA_FILE));
 
         // --- Ejecución Secuencial ---
         System.out.println("\n===== EJECUCIÓN SECUENCIAL =====");
@@ -77,6 +89,19 @@ public class MainImageProcessor {
                     System.out.println("Frame virtual 100 reproducido exitosamente.");
                     // ImageUtils.displayImage(reproducedFrame100, "Frame 100"); // Descomenta para mostrar visualmente
                 }
+                // Reproduce el frame 10 directamente como bytes en gris (recorte y conversión en una pasada).
+                byte[] grayFrame10 = serialProcessor.reproduceVirtualFramePixels(10, PixelFormat.GRAY);
+                if (grayFrame10 != null) {
+                    System.out.println(String.format("Frame virtual 10 reproducido como %d bytes en gris (SIMD: %b).", grayFrame10.length, PixelKernels.isVectorized()));
+                }
+                // Reproduce el frame 10 a escala reducida desde la pirámide multirresolución (se construye una vez).
+                serialProcessor.buildImagePyramid();
+                for (double scale : new double[]{0.5, 0.3}) {
+                    BufferedImage scaledFrame10 = serialProcessor.reproduceVirtualFrameScaled(10, scale);
+                    if (scaledFrame10 != null) {
+                        System.out.println(String.format("Frame virtual 10 reproducido a escala %.2f: %dx%d píxeles.", scale, scaledFrame10.getWidth(), scaledFrame10.getHeight()));
+                    }
+                }
                 long reproductionEndTime = System.currentTimeMillis();
                 System.out.println(String.format("Prueba de reproducción serial completada en %.2f segundos.", (reproductionEndTime - reproductionStartTime) / 1000.0));
 
@@ -108,6 +133,40 @@ public class MainImageProcessor {
             // Genera frames físicos de forma paralela. Debería ser más rápido que la versión serial.
             parallelProcessor.generatePhysicalFramesParallel();
 
+            // Genera los mismos frames en un único frame pack y prueba la lectura aleatoria de un frame.
+            parallelProcessor.generatePhysicalFramesPackParallel();
+            try (FramePackReader packReader = new FramePackReader(Paths.get(FRAME_PACK_DATA_PATH), Paths.get(FRAME_PACK_INDEX_PATH))) {
+                BufferedImage packedFrame = packReader.readFrame(10);
+                if (packedFrame != null) {
+                    System.out.println(String.format("Frame 10 leído del frame pack (%dx%d).", packedFrame.getWidth(), packedFrame.getHeight()));
+                }
+            } catch (IOException e) {
+                System.err.println("Error al leer el frame pack: " + e.getMessage());
+            }
+
+            // Genera directamente la entrada de entrenamiento: frames reducidos a 16x16 en gris,
+            // normalizados a media 0.5 y desviación 0.5, en lotes .npy de 256 frames.
+            FrameTensorTransform tensorTransform = new FrameTensorTransform(16, 16, 1, new float[]{0.5f}, new float[]{0.5f});
+            parallelProcessor.generateTensorBatchesParallel(tensorTransform, 256, TENSOR_BATCHES_DIR);
+
+            // Escribe todos los frames en orden como un flujo de vídeo Y4M (usar "-" para enviarlo a la salida estándar).
+            parallelProcessor.generateY4mStreamParallel(Y4M_STREAM_PATH, PixelFormat.YCBCR_PLANAR, 30);
+
+            // Regenera los metadatos en paralelo: un único archivo ensamblado por bloques y, además,
+            // repartidos en shards con un índice que permite localizar el shard de cada frame directamente.
+            parallelProcessor.generateVirtualFrameMetadataParallel();
+            String shardIndexFile = parallelProcessor.generateVirtualFrameMetadataSharded(numProcesses * 4);
+            if (shardIndexFile != null) {
+                try {
+                    FrameMetadata shardedFrame = ShardIndex.readFrameMetadata(Paths.get(shardIndexFile), 10);
+                    if (shardedFrame != null) {
+                        System.out.println(String.format("Metadatos del frame 10 leídos de su shard: x=%d, y=%d.", shardedFrame.getX(), shardedFrame.getY()));
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error al leer los metadatos en shards: " + e.getMessage());
+                }
+            }
+
             // Asegura que el archivo de metadatos virtuales exista para la reproducción concurrente.
             // Si por alguna razón no se generó o se borró, el procesador serial lo genera de nuevo.
             if (!Files.exists(Paths.get(VIRTUAL_METADATA_FILE))) {
@@ -120,6 +179,19 @@ public class MainImageProcessor {
             double reproductionDelay = 0.001; // Pequeño retraso en segundos para simular el trabajo por frame.
             // Simula la reproducción de frames virtuales de forma concurrente, usando múltiples hilos.
             parallelProcessor.reproduceVirtualFrameConcurrently(K_FRAMES, reproductionDelay);
+
+            // Repite la reproducción con un gobernador que ajusta el número de frames en curso
+            // (entre 1 y el doble de núcleos) según la ocupación del heap, las pausas de GC y la cola.
+            parallelProcessor.setConcurrencyGovernor(new ConcurrencyGovernor(1, numProcesses * 2, numProcesses, 100));
+            parallelProcessor.reproduceVirtualFrameConcurrently(K_FRAMES, reproductionDelay);
+            parallelProcessor.setConcurrencyGovernor(null);
+
+            // --- Pruebas de Carga de Reproducción ---
+            // Lazo abierto: 500 peticiones/s con IDs uniformes. Lazo cerrado: un cliente por hilo con IDs Zipf.
+            parallelProcessor.runReproductionLoadTest(new LoadGenerator(LoadGenerator.Mode.OPEN_LOOP, numProcesses, 500, 1000, FrameIdDistribution.UNIFORM));
+            parallelProcessor.runReproductionLoadTest(new LoadGenerator(LoadGenerator.Mode.CLOSED_LOOP, numProcesses, 0, 1000, FrameIdDistribution.ZIPFIAN));
+            // Para comparar: solo el recorte, con la imagen ya decodificada en memoria.
+            parallelProcessor.runPreloadedCropLoadTest(new LoadGenerator(LoadGenerator.Mode.CLOSED_LOOP, numProcesses, 0, 1000, FrameIdDistribution.ZIPFIAN));
         } else {
             System.err.println("Saltando la ejecución paralela ya que no se pudieron determinar las dimensiones de la imagen principal.");
         }
@@ -0,0 +1,63 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Escribe arrays float32 en formato NPY 1.0 (el de numpy.save), legibles con numpy.load().
+ * Cabecera: "\x93NUMPY", versión 1.0, longitud de la cabecera (uint16 little-endian) y un diccionario
+ * Python con descr/fortran_order/shape, rellenado con espacios para que los datos empiecen alineados a 64 bytes.
+ */
+public final class NpyWriter {
+
+    private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0};
+    private static final int ALIGNMENT = 64;
+
+    private NpyWriter() {}
+
+    /**
+     * Escribe un array float32 en orden C (fila mayor).
+     * @param path Ruta del archivo .npy.
+     * @param shape Dimensiones del array; su producto debe ser igual a count.
+     * @param data Datos del array.
+     * @param count Número de floats de data a escribir (desde el índice 0).
+     * @throws IOException Si falla la escritura.
+     */
+    public static void writeFloat32(Path path, long[] shape, float[] data, int count) throws IOException {
+        StringBuilder shapeStr = new StringBuilder("(");
+        long elements = 1;
+        for (int i = 0; i < shape.length; i++) {
+            shapeStr.append(shape[i]).append(shape.length == 1 || i < shape.length - 1 ? ", " : "");
+            elements *= shape[i];
+        }
+        shapeStr.append(')');
+        if (elements != count) {
+            throw new IllegalArgumentException(String.format("La forma %s tiene %d elementos, pero se pasaron %d.", shapeStr, elements, count));
+        }
+
+        String dict = String.format("{'descr': '<f4', 'fortran_order': False, 'shape': %s, }", shapeStr);
+        int unpadded = MAGIC.length + 2 + dict.length() + 1; // +1 por el '\n' final
+        int padding = (ALIGNMENT - unpadded % ALIGNMENT) % ALIGNMENT;
+        String header = dict + " ".repeat(padding) + "\n";
+
+        ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length + 2 + header.length() + count * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putShort((short) header.length());
+        buffer.put(header.getBytes(StandardCharsets.US_ASCII));
+        buffer.asFloatBuffer().put(data, 0, count);
+        buffer.position(buffer.position() + count * Float.BYTES);
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package com.mycompany.procesamientoimagenespc04;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -16,6 +26,7 @@ import java.util.concurrent.atomic.AtomicLong; // For thread-safe counter
 public class ParallelProcessor extends SerialProcessor { // Hereda propiedades comunes y métodos de ayuda
 
     private final int numProcesses; // Número de procesos/hilos paralelos a usar
+    private ConcurrencyGovernor concurrencyGovernor; // Opcional: ajusta las tareas en ejecución según la presión de memoria
 
     public ParallelProcessor(String mainImagePath, int M_MAIN, int N_MAIN, int m_SUB, int n_SUB,
                              String physicalFramesDir, String virtualMetadataFile, int numProcesses) {
@@ -24,6 +35,47 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
         System.out.println(String.format("Usando %d procesos/hilos para operaciones paralelas.", this.numProcesses));
     }
 
+    /**
+     * Activa el control adaptativo de concurrencia para la generación y la reproducción: lo usan todas las
+     * etapas paralelas (frames sueltos, frame pack, tensores, flujo Y4M, metadatos y reproducción concurrente).
+     * Con un gobernador, el pool de hilos se dimensiona a su límite máximo y el número de tareas
+     * en ejecución lo decide el gobernador en lugar de numProcesses.
+     * @param concurrencyGovernor El gobernador a usar, o null para volver al número fijo de hilos.
+     */
+    public void setConcurrencyGovernor(ConcurrencyGovernor concurrencyGovernor) {
+        this.concurrencyGovernor = concurrencyGovernor;
+    }
+
+    // Número de hilos del pool: fijo, o el máximo permitido por el gobernador.
+    private int poolSize() {
+        return concurrencyGovernor != null ? concurrencyGovernor.getMaxLimit() : numProcesses;
+    }
+
+    // Arranca el gobernador (si hay) para una etapa de totalTasks tareas; su profundidad de cola son las que faltan por enviar.
+    private ConcurrencyGovernor startGovernor(String stageName, long totalTasks, AtomicLong submittedTasks) {
+        ConcurrencyGovernor governor = concurrencyGovernor;
+        if (governor != null) {
+            governor.start(stageName, () -> (int) Math.min(Integer.MAX_VALUE, totalTasks - submittedTasks.get()));
+        }
+        return governor;
+    }
+
+    // Envía una tarea al pool. Con gobernador, espera a que permita otra tarea en ejecución
+    // y libera el permiso cuando la tarea termina, con o sin error.
+    private static <T> Future<T> submitGoverned(ExecutorService executor, ConcurrencyGovernor governor, Callable<T> task) throws InterruptedException {
+        if (governor == null) {
+            return executor.submit(task);
+        }
+        governor.acquire();
+        return executor.submit(() -> {
+            try {
+                return task.call();
+            } finally {
+                governor.release();
+            }
+        });
+    }
+
     // Callable para la generación de frames paralelos (Caso 1)
     // Cada instancia de esta tarea generará un solo frame.
     private static class GenerateFrameTask implements Callable<Boolean> {
@@ -62,7 +114,7 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
                 int y_start = coords[1];
 
                 BufferedImage croppedImg = mainImg.getSubimage(x_start, y_start, n_SUB, m_SUB);
-                String framePath = String.format("%s/frame_%05d.png", physicalFramesDir, frameIdx);
+                String framePath = String.format("%s/%s", physicalFramesDir, ImageUtils.frameFileName(frameIdx, ImageUtils.calculateTotalFrames(M_MAIN, N_MAIN, m_SUB, n_SUB)));
                 ImageIO.write(croppedImg, "png", new File(framePath));
                 return true; // Indica éxito
             } catch (IOException e) {
@@ -81,17 +133,25 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
     // --- Caso 1: Generación de Frames Físicos Paralela ---
     public void generatePhysicalFramesParallel() {
         long startTime = System.currentTimeMillis();
-        System.out.println(String.format("\n--- Paralelo: Generando %d frames físicos usando %d procesos/hilos ---", totalFrames, numProcesses));
+        System.out.println(String.format("\n--- Paralelo: Generando %d frames físicos usando %d procesos/hilos ---", totalFrames, poolSize()));
         ImageUtils.createDirectory(Paths.get(physicalFramesDir));
 
         // Crea un pool de hilos de tamaño fijo
-        ExecutorService executor = Executors.newFixedThreadPool(numProcesses);
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize());
         List<Future<Boolean>> futures = new ArrayList<>();
         AtomicLong generatedCount = new AtomicLong(0); // Contador seguro para hilos para actualizaciones de progreso
+        AtomicLong submittedCount = new AtomicLong(0); // Frames ya enviados al pool (para la profundidad de cola del gobernador)
+        ConcurrencyGovernor governor = startGovernor("generación de frames", totalFrames, submittedCount);
 
         // Envía tareas para todos los frames
-        for (long i = 0; i < totalFrames; i++) {
-            futures.add(executor.submit(new GenerateFrameTask(i, mainImagePath, M_MAIN, N_MAIN, m_SUB, n_SUB, physicalFramesDir)));
+        try {
+            for (long i = 0; i < totalFrames; i++) {
+                futures.add(submitGoverned(executor, governor, new GenerateFrameTask(i, mainImagePath, M_MAIN, N_MAIN, m_SUB, n_SUB, physicalFramesDir)));
+                submittedCount.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            System.err.println("Hilo principal interrumpido mientras enviaba tareas de generación: " + e.getMessage());
+            Thread.currentThread().interrupt();
         }
 
         // Recopila resultados y actualiza el progreso
@@ -111,6 +171,9 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
             }
         }
 
+        if (governor != null) {
+            governor.stop();
+        }
         executor.shutdown(); // Inicia el apagado ordenado del ejecutor
         try {
             // Espera a que todas las tareas se completen o que se agote el tiempo de espera (60 minutos)
@@ -130,20 +193,565 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
     }
 
 
+    // Callable para la generación paralela de un frame pack (Caso 1, variante).
+    // Cada instancia genera un bloque contiguo de frames y los escribe en el pack compartido
+    // mediante escrituras posicionales, por lo que no hace falta sincronizar los hilos.
+    private static class GeneratePackChunkTask implements Callable<Long> {
+        private final long firstFrame; // Inclusivo
+        private final long endFrame;   // Exclusivo
+        private final BufferedImage mainImg; // Imagen principal compartida (solo lectura)
+        private final int M_MAIN;
+        private final int N_MAIN;
+        private final int m_SUB;
+        private final int n_SUB;
+        private final FramePackWriter packWriter;
+        private final PixelFormat rawFormat; // null = PNG; en otro caso, bytes empaquetados sin codificar
+        private final int[] mainPixels; // Píxeles ARGB de la imagen principal (solo si rawFormat != null)
+
+        public GeneratePackChunkTask(long firstFrame, long endFrame, BufferedImage mainImg, int M_MAIN, int N_MAIN, int m_SUB, int n_SUB,
+                                     FramePackWriter packWriter, PixelFormat rawFormat, int[] mainPixels) {
+            this.firstFrame = firstFrame;
+            this.endFrame = endFrame;
+            this.mainImg = mainImg;
+            this.M_MAIN = M_MAIN;
+            this.N_MAIN = N_MAIN;
+            this.m_SUB = m_SUB;
+            this.n_SUB = n_SUB;
+            this.packWriter = packWriter;
+            this.rawFormat = rawFormat;
+            this.mainPixels = mainPixels;
+        }
+
+        @Override
+        public Long call() {
+            long written = 0;
+            for (long frameIdx = firstFrame; frameIdx < endFrame; frameIdx++) {
+                try {
+                    int[] coords = ImageUtils.getFrameCoordinates(frameIdx, M_MAIN, N_MAIN, m_SUB, n_SUB);
+                    if (rawFormat != null) {
+                        // Recorte y conversión en una sola pasada sobre los píxeles, sin codificar.
+                        packWriter.writeFrame(frameIdx, PixelKernels.extract(mainPixels, mainImg.getWidth(), coords[0], coords[1], n_SUB, m_SUB, rawFormat));
+                    } else {
+                        BufferedImage croppedImg = mainImg.getSubimage(coords[0], coords[1], n_SUB, m_SUB);
+                        packWriter.writeFrame(frameIdx, ImageUtils.encodePng(croppedImg));
+                    }
+                    written++;
+                } catch (IOException e) {
+                    System.err.println(String.format("Error generando frame %d en el frame pack (Hilo %d): %s", frameIdx, Thread.currentThread().getId(), e.getMessage()));
+                } catch (java.awt.image.RasterFormatException | IllegalArgumentException e) {
+                    System.err.println(String.format("Error recortando imagen para el frame %d (Hilo %d - región inválida): %s. Ancho=%d, alto=%d",
+                        frameIdx, Thread.currentThread().getId(), e.getMessage(), n_SUB, m_SUB));
+                }
+            }
+            return written;
+        }
+    }
+
+    // --- Caso 1 (variante): Generación Paralela de Frames Físicos en un Frame Pack ---
+    public void generatePhysicalFramesPackParallel() {
+        generatePhysicalFramesPackParallel(0, totalFrames, MainImageProcessor.FRAME_PACK_DATA_PATH, MainImageProcessor.FRAME_PACK_INDEX_PATH);
+    }
+
+    /**
+     * Genera los frames [firstFrame, endFrame) en un frame pack usando varios hilos.
+     * @param firstFrame ID del primer frame a generar (inclusivo).
+     * @param endFrame ID del último frame a generar (exclusivo).
+     * @param packDataPath Ruta del archivo de datos del pack.
+     * @param packIndexPath Ruta del archivo de índice del pack.
+     */
+    public void generatePhysicalFramesPackParallel(long firstFrame, long endFrame, String packDataPath, String packIndexPath) {
+        generatePhysicalFramesPackParallel(firstFrame, endFrame, packDataPath, packIndexPath, null);
+    }
+
+    /**
+     * Genera los frames [firstFrame, endFrame) en un frame pack usando varios hilos.
+     * Con rawFormat, cada frame se guarda como bytes empaquetados (gris o RGB) producidos por PixelKernels
+     * en lugar de PNG; en ese caso se leen con FramePackReader.readFrameBytes(), no con readFrame().
+     * @param rawFormat Formato de píxeles sin codificar, o null para PNG.
+     */
+    public void generatePhysicalFramesPackParallel(long firstFrame, long endFrame, String packDataPath, String packIndexPath, PixelFormat rawFormat) {
+        long startTime = System.currentTimeMillis();
+        long frameCount = endFrame - firstFrame;
+        System.out.println(String.format("\n--- Paralelo: Generando %d frames físicos en el frame pack '%s' usando %d procesos/hilos ---", frameCount, packDataPath, poolSize()));
+
+        BufferedImage mainImg;
+        try {
+            // La imagen principal se carga una vez y se comparte entre los hilos (getSubimage solo lee).
+            mainImg = ImageIO.read(new File(mainImagePath));
+        } catch (IOException e) {
+            System.err.println(String.format("Error al leer la imagen principal '%s': %s", mainImagePath, e.getMessage()));
+            return;
+        }
+        if (mainImg == null) {
+            System.err.println(String.format("Error: La imagen principal '%s' no pudo ser cargada. No se pueden generar frames.", mainImagePath));
+            return;
+        }
+
+        int[] mainPixels = rawFormat != null ? ImageUtils.getArgbPixels(mainImg) : null;
+        int threads = poolSize();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // Varios bloques por hilo para equilibrar la carga si algunos frames tardan más en codificarse.
+        long chunkSize = Math.max(1, (frameCount + threads * 4L - 1) / (threads * 4L));
+        AtomicLong submittedChunks = new AtomicLong(0);
+        ConcurrencyGovernor governor = startGovernor("generación del frame pack", (frameCount + chunkSize - 1) / chunkSize, submittedChunks);
+        try (FramePackWriter packWriter = new FramePackWriter(Paths.get(packDataPath), Paths.get(packIndexPath), firstFrame, frameCount)) {
+            List<Future<Long>> futures = new ArrayList<>();
+            try {
+                for (long chunkStart = firstFrame; chunkStart < endFrame; chunkStart += chunkSize) {
+                    long chunkEnd = Math.min(endFrame, chunkStart + chunkSize);
+                    futures.add(submitGoverned(executor, governor, new GeneratePackChunkTask(chunkStart, chunkEnd, mainImg, M_MAIN, N_MAIN, m_SUB, n_SUB, packWriter, rawFormat, mainPixels)));
+                    submittedChunks.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                System.err.println("Hilo principal interrumpido mientras enviaba los bloques del frame pack: " + e.getMessage());
+                Thread.currentThread().interrupt();
+            }
+
+            long generated = 0;
+            for (Future<Long> future : futures) {
+                try {
+                    generated += future.get();
+                } catch (InterruptedException e) {
+                    System.err.println("Hilo principal interrumpido mientras esperaba el frame pack: " + e.getMessage());
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    System.err.println("Error en una tarea de generación del frame pack: " + e.getMessage());
+                }
+            }
+            if (generated != frameCount) {
+                System.err.println(String.format("Advertencia: solo se escribieron %d de %d frames en el frame pack.", generated, frameCount));
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("Error durante la generación paralela del frame pack: %s", e.getMessage()));
+            e.printStackTrace();
+        } finally {
+            if (governor != null) {
+                governor.stop();
+            }
+            executor.shutdown();
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Generación paralela del frame pack completada en %.2f segundos.", (endTime - startTime) / 1000.0));
+    }
+
+
+    // --- Caso 3: Generación Paralela de Lotes de Tensores ---
+    /**
+     * Versión paralela de generateTensorBatchesSerial(): cada hilo transforma y escribe lotes completos.
+     * La imagen principal se decodifica una sola vez y sus píxeles se comparten en solo lectura.
+     * @param transform Transformación (redimensionado, canales y normalización).
+     * @param batchSize Número de frames por lote.
+     * @param outputDir Directorio de salida.
+     */
+    public void generateTensorBatchesParallel(FrameTensorTransform transform, int batchSize, String outputDir) {
+        long startTime = System.currentTimeMillis();
+        int numBatches = (int) ((totalFrames + batchSize - 1) / batchSize);
+        System.out.println(String.format("\n--- Paralelo: Generando %d frames como %d lotes de tensores %dx%dx%d usando %d procesos/hilos ---",
+                totalFrames, numBatches, transform.getOutHeight(), transform.getOutWidth(), transform.getChannels(), poolSize()));
+        ImageUtils.createDirectory(Paths.get(outputDir));
+
+        BufferedImage mainImg;
+        try {
+            mainImg = ImageIO.read(new File(mainImagePath));
+        } catch (IOException e) {
+            System.err.println(String.format("Error al leer la imagen principal '%s': %s", mainImagePath, e.getMessage()));
+            return;
+        }
+        if (mainImg == null) {
+            System.err.println(String.format("Error: La imagen principal '%s' no pudo ser cargada. No se pueden generar tensores.", mainImagePath));
+            return;
+        }
+        int[] mainPixels = ImageUtils.getArgbPixels(mainImg);
+        int mainWidth = mainImg.getWidth();
+
+        ShardIndex index = new ShardIndex(totalFrames, batchSize);
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize());
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicLong submittedBatches = new AtomicLong(0);
+        ConcurrencyGovernor governor = startGovernor("generación de tensores", numBatches, submittedBatches);
+
+        try {
+            for (int batchIdx = 0; batchIdx < numBatches; batchIdx++) {
+                long first = (long) batchIdx * batchSize;
+                long end = Math.min(totalFrames, first + batchSize);
+                ShardIndex.Shard batch = new ShardIndex.Shard(tensorBatchFileName(batchIdx, numBatches), first, end - first);
+                index.shards.add(batch);
+                futures.add(submitGoverned(executor, governor, () -> {
+                    writeTensorBatch(mainPixels, mainWidth, transform, batch, Paths.get(outputDir, batch.file));
+                    return null;
+                }));
+                submittedBatches.incrementAndGet();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            index.write(Paths.get(outputDir, TENSOR_INDEX_FILE));
+        } catch (IOException | ExecutionException e) {
+            System.err.println(String.format("Error durante la generación paralela de tensores: %s", e.getMessage()));
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            System.err.println("Hilo principal interrumpido durante la generación de tensores: " + e.getMessage());
+            Thread.currentThread().interrupt();
+        } finally {
+            if (governor != null) {
+                governor.stop();
+            }
+            executor.shutdownNow();
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Generación paralela de tensores completada en %.2f segundos.", (endTime - startTime) / 1000.0));
+    }
+
+    // --- Caso 1 (variante): Flujo de Vídeo Y4M en Orden de ID ---
+
+    // Tamaño aproximado de cada bloque de frames que convierte una tarea del flujo Y4M.
+    private static final int Y4M_CHUNK_BYTES = 1 << 22;
+
+    /**
+     * Escribe todos los frames, en orden de ID, como un flujo de vídeo Y4M sin comprimir (ventana deslizante
+     * vista como una cámara en movimiento), a un archivo o a la salida estándar para encadenarlo con otras
+     * herramientas, por ejemplo: ... Y4mStreamCli - | ffmpeg -i - salida.mp4
+     * Los hilos convierten bloques de frames en paralelo y el hilo principal los escribe en orden; como
+     * máximo hay 2 bloques por hilo pendientes de escribir, así que la memoria está acotada.
+     * Con salida "-", los mensajes de System.out se desvían a System.err mientras dura la escritura.
+     * @param output Ruta del archivo .y4m, o "-" para la salida estándar.
+     * @param format PixelFormat.YCBCR_PLANAR (color, C444) o PixelFormat.GRAY (Cmono).
+     * @param fps Frames por segundo declarados en la cabecera.
+     * @return true si se escribieron todos los frames.
+     */
+    public boolean generateY4mStreamParallel(String output, PixelFormat format, int fps) {
+        if (format != PixelFormat.YCBCR_PLANAR && format != PixelFormat.GRAY) {
+            throw new IllegalArgumentException("Formato no soportado en Y4M (usar YCBCR_PLANAR o GRAY): " + format);
+        }
+        boolean toStdout = output.equals("-");
+        PrintStream originalOut = System.out;
+        if (toStdout) {
+            System.setOut(System.err);
+        }
+        try {
+            return writeY4mStream(output, toStdout, format, fps);
+        } finally {
+            System.setOut(originalOut); // Se restaura aunque la escritura termine con una excepción
+        }
+    }
+
+    private boolean writeY4mStream(String output, boolean toStdout, PixelFormat format, int fps) {
+        long startTime = System.nanoTime();
+        System.out.println(String.format("\n--- Paralelo: Generando %d frames como flujo Y4M %s en '%s' usando %d procesos/hilos ---",
+                totalFrames, format == PixelFormat.GRAY ? "Cmono" : "C444", output, poolSize()));
+
+        BufferedImage mainImg;
+        try {
+            mainImg = ImageIO.read(new File(mainImagePath));
+        } catch (IOException e) {
+            System.err.println(String.format("Error al leer la imagen principal '%s': %s", mainImagePath, e.getMessage()));
+            return false;
+        }
+        if (mainImg == null) {
+            System.err.println(String.format("Error: La imagen principal '%s' no pudo ser cargada. No se puede generar el flujo.", mainImagePath));
+            return false;
+        }
+        int[] mainPixels = ImageUtils.getArgbPixels(mainImg);
+        int mainWidth = mainImg.getWidth();
+        int frameSize = n_SUB * m_SUB * format.getBytesPerPixel();
+        int framesPerChunk = Math.max(1, Y4M_CHUNK_BYTES / frameSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize());
+        ArrayDeque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+        int maxPendingChunks = poolSize() * 2;
+        AtomicLong submittedChunks = new AtomicLong(0);
+        ConcurrencyGovernor governor = startGovernor("flujo Y4M", (totalFrames + framesPerChunk - 1) / framesPerChunk, submittedChunks);
+        long framesWritten = 0;
+        boolean failed = false; // El resultado se decide tras cerrar el escritor: el último flush puede fallar.
+        try (Y4mWriter writer = new Y4mWriter(new BufferedOutputStream(
+                toStdout ? new FilterOutputStream(new FileOutputStream(FileDescriptor.out)) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len); // FilterOutputStream escribiría byte a byte
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush(); // No cierra la salida estándar del proceso, que sigue siendo System.out al terminar
+                    }
+                } : new FileOutputStream(output), 1 << 20),
+                n_SUB, m_SUB, fps, format)) {
+            for (long chunkStart = 0; chunkStart < totalFrames; chunkStart += framesPerChunk) {
+                long start = chunkStart;
+                int count = (int) Math.min(framesPerChunk, totalFrames - chunkStart);
+                pendingChunks.add(submitGoverned(executor, governor, () -> {
+                    // Convierte el bloque directamente desde los píxeles de la imagen principal, frame tras frame.
+                    byte[] chunk = new byte[count * frameSize];
+                    byte[] frame = new byte[frameSize];
+                    for (int i = 0; i < count; i++) {
+                        int[] coords = ImageUtils.getFrameCoordinates(start + i, M_MAIN, N_MAIN, m_SUB, n_SUB);
+                        if (format == PixelFormat.GRAY) {
+                            PixelKernels.toGray(mainPixels, mainWidth, coords[0], coords[1], n_SUB, m_SUB, frame);
+                        } else {
+                            PixelKernels.toYCbCrPlanar(mainPixels, mainWidth, coords[0], coords[1], n_SUB, m_SUB, frame);
+                        }
+                        System.arraycopy(frame, 0, chunk, i * frameSize, frameSize);
+                    }
+                    return chunk;
+                }));
+                submittedChunks.incrementAndGet();
+                // Escribe en orden el bloque más antiguo en cuanto la ventana se llena.
+                if (pendingChunks.size() >= maxPendingChunks) {
+                    framesWritten += writeY4mChunk(writer, pendingChunks.poll().get());
+                }
+            }
+            while (!pendingChunks.isEmpty()) {
+                framesWritten += writeY4mChunk(writer, pendingChunks.poll().get());
+            }
+        } catch (IOException | ExecutionException e) {
+            System.err.println(String.format("Error al escribir el flujo Y4M: %s", e.getMessage()));
+            e.printStackTrace();
+            failed = true;
+        } catch (InterruptedException e) {
+            System.err.println("Hilo principal interrumpido durante la escritura del flujo Y4M: " + e.getMessage());
+            Thread.currentThread().interrupt();
+            failed = true;
+        } finally {
+            if (governor != null) {
+                governor.stop();
+            }
+            executor.shutdownNow(); // Cancela los bloques pendientes si hubo un error (por ejemplo, el lector cerró la tubería)
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.println(String.format("Flujo Y4M completado: %d frames en %.2f segundos (%.1f frames/s, %.1f MB/s).",
+                framesWritten, seconds, framesWritten / seconds, framesWritten * (double) (frameSize + 6) / seconds / (1 << 20)));
+        return !failed && framesWritten == totalFrames;
+    }
+
+    private static int writeY4mChunk(Y4mWriter writer, byte[] chunk) throws IOException {
+        int frames = chunk.length / writer.getFrameSize();
+        for (int i = 0; i < frames; i++) {
+            writer.writeFrame(chunk, i * writer.getFrameSize());
+        }
+        return frames;
+    }
+
+    // --- Caso 2: Generación Paralela de Metadatos de Frames Virtuales ---
+
+    // Número de registros que serializa cada tarea al generar un único archivo de metadatos.
+    private static final int METADATA_CHUNK_SIZE = 65536;
+
+    /**
+     * Serializa los metadatos de los frames [firstFrame, endFrame) como objetos JSON separados por comas.
+     * Cada llamada es independiente, así que varios hilos pueden serializar rangos distintos a la vez.
+     * @param out Flujo de destino.
+     * @param asArray Si es true, el rango se envuelve en corchetes para formar un array JSON completo.
+     */
+    private void writeMetadataRange(OutputStream out, ObjectWriter writer, long firstFrame, long endFrame, boolean asArray) throws IOException {
+        if (asArray) {
+            out.write('[');
+        }
+        for (long i = firstFrame; i < endFrame; i++) {
+            if (i > firstFrame) {
+                out.write(',');
+            }
+            int[] coords = ImageUtils.getFrameCoordinates(i, M_MAIN, N_MAIN, m_SUB, n_SUB);
+            out.write(writer.writeValueAsBytes(new FrameMetadata(i, coords[0], coords[1], n_SUB, m_SUB, mainImagePath)));
+        }
+        if (asArray) {
+            out.write(']');
+        }
+    }
+
+    /**
+     * Genera el archivo de metadatos de frames virtuales usando varios hilos.
+     * Los bloques se serializan en paralelo y se ensamblan en orden en un único array JSON;
+     * como máximo hay 2 bloques por hilo pendientes de escribir, así que la memoria está acotada.
+     * El resultado se lee igual que el de generateVirtualFrameMetadataSerial() (sin formato legible).
+     */
+    public void generateVirtualFrameMetadataParallel() {
+        generateVirtualFrameMetadataParallel(0, totalFrames, virtualMetadataFile);
+    }
+
+    /**
+     * Genera en paralelo un array JSON con los metadatos de los frames [firstFrame, endFrame).
+     * @param firstFrame ID del primer frame (inclusivo).
+     * @param endFrame ID del último frame (exclusivo).
+     * @param outputFile Archivo JSON de salida.
+     * @return true si el archivo se escribió completo.
+     */
+    public boolean generateVirtualFrameMetadataParallel(long firstFrame, long endFrame, String outputFile) {
+        long startTime = System.currentTimeMillis();
+        System.out.println(String.format("\n--- Paralelo: Generando metadatos de %d frames virtuales en '%s' usando %d procesos/hilos ---", endFrame - firstFrame, outputFile, poolSize()));
+        boolean failed = false; // El resultado se decide tras cerrar el flujo: el último flush puede fallar.
+
+        ObjectWriter writer = new ObjectMapper().writerFor(FrameMetadata.class); // ObjectWriter es inmutable y seguro para hilos.
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize());
+        ArrayDeque<Future<byte[]>> pendingChunks = new ArrayDeque<>();
+        int maxPendingChunks = poolSize() * 2;
+        AtomicLong submittedChunks = new AtomicLong(0);
+        ConcurrencyGovernor governor = startGovernor("generación de metadatos",
+                (endFrame - firstFrame + METADATA_CHUNK_SIZE - 1) / METADATA_CHUNK_SIZE, submittedChunks);
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), 1 << 20)) {
+            out.write('[');
+            boolean firstChunk = true;
+            for (long chunkStart = firstFrame; chunkStart < endFrame; chunkStart += METADATA_CHUNK_SIZE) {
+                long start = chunkStart;
+                long end = Math.min(endFrame, chunkStart + METADATA_CHUNK_SIZE);
+                pendingChunks.add(submitGoverned(executor, governor, () -> {
+                    ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+                    writeMetadataRange(chunk, writer, start, end, false);
+                    return chunk.toByteArray();
+                }));
+                submittedChunks.incrementAndGet();
+                // Escribe en orden el bloque más antiguo en cuanto la ventana se llena.
+                if (pendingChunks.size() >= maxPendingChunks) {
+                    writeChunk(out, pendingChunks.poll().get(), firstChunk);
+                    firstChunk = false;
+                }
+            }
+            while (!pendingChunks.isEmpty()) {
+                writeChunk(out, pendingChunks.poll().get(), firstChunk);
+                firstChunk = false;
+            }
+            out.write(']');
+        } catch (IOException | ExecutionException e) {
+            System.err.println(String.format("Error al escribir los metadatos del frame virtual: %s", e.getMessage()));
+            e.printStackTrace();
+            failed = true;
+        } catch (InterruptedException e) {
+            System.err.println("Hilo principal interrumpido durante la generación de metadatos: " + e.getMessage());
+            Thread.currentThread().interrupt();
+            failed = true;
+        } finally {
+            if (governor != null) {
+                governor.stop();
+            }
+            executor.shutdownNow(); // Cancela los bloques pendientes si hubo un error
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Generación paralela de metadatos de frames virtuales completada en %.2f segundos.", (endTime - startTime) / 1000.0));
+        return !failed;
+    }
+
+    private static void writeChunk(OutputStream out, byte[] chunk, boolean firstChunk) throws IOException {
+        if (!firstChunk) {
+            out.write(',');
+        }
+        out.write(chunk);
+    }
+
+    /**
+     * Genera los metadatos de frames virtuales repartidos en numShards archivos (cada uno un array JSON
+     * de un rango contiguo de frames) más un índice de shards junto al archivo de metadatos.
+     * Cada hilo escribe sus shards directamente a disco, sin pasar por un único flujo de salida.
+     * Para leer un frame, usar ShardIndex.readFrameMetadata(), que localiza el shard sin recorrer nada.
+     * @param numShards Número de shards deseado.
+     * @return La ruta del índice de shards, o null si hubo un error.
+     */
+    public String generateVirtualFrameMetadataSharded(int numShards) {
+        long startTime = System.currentTimeMillis();
+        long framesPerShard = Math.max(1, (totalFrames + numShards - 1) / numShards);
+        int actualShards = (int) ((totalFrames + framesPerShard - 1) / framesPerShard);
+        System.out.println(String.format("\n--- Paralelo: Generando metadatos de %d frames virtuales en %d shards usando %d procesos/hilos ---", totalFrames, actualShards, poolSize()));
+
+        Path metadataDir = Paths.get(virtualMetadataFile).toAbsolutePath().getParent();
+        ShardIndex index = new ShardIndex(totalFrames, framesPerShard);
+        ObjectWriter writer = new ObjectMapper().writerFor(FrameMetadata.class);
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize());
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicLong submittedShards = new AtomicLong(0);
+        ConcurrencyGovernor governor = startGovernor("generación de shards de metadatos", actualShards, submittedShards);
+
+        String indexFile = ShardIndex.indexFileName(virtualMetadataFile);
+        boolean ok = true;
+        try {
+            for (int shardIdx = 0; shardIdx < actualShards; shardIdx++) {
+                long first = shardIdx * framesPerShard;
+                long count = Math.min(framesPerShard, totalFrames - first);
+                ShardIndex.Shard shard = new ShardIndex.Shard(ShardIndex.shardFileName(virtualMetadataFile, shardIdx), first, count);
+                index.shards.add(shard);
+                futures.add(submitGoverned(executor, governor, () -> {
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(metadataDir.resolve(shard.file).toFile()), 1 << 20)) {
+                        writeMetadataRange(out, writer, shard.firstFrameId, shard.firstFrameId + shard.frameCount, true);
+                    }
+                    return null;
+                }));
+                submittedShards.incrementAndGet();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            index.write(Paths.get(indexFile));
+        } catch (IOException | ExecutionException e) {
+            System.err.println(String.format("Error al escribir los shards de metadatos: %s", e.getMessage()));
+            e.printStackTrace();
+            ok = false;
+        } catch (InterruptedException e) {
+            System.err.println("Hilo principal interrumpido durante la generación de shards de metadatos: " + e.getMessage());
+            Thread.currentThread().interrupt();
+            ok = false;
+        } finally {
+            if (governor != null) {
+                governor.stop();
+            }
+            executor.shutdownNow();
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Generación de metadatos en shards completada en %.2f segundos (índice: %s).", (endTime - startTime) / 1000.0, indexFile));
+        return ok ? indexFile : null;
+    }
+
+    // Resultado de la reproducción de un frame: éxito y tiempo empleado.
+    private static class FrameResult {
+        private final long frameId;
+        private final boolean success;
+        private final long latencyNanos;
+
+        FrameResult(long frameId, boolean success, long latencyNanos) {
+            this.frameId = frameId;
+            this.success = success;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+
+    // Marca de fin de trabajo: cada trabajador termina al recibirla, sin sondear la cola con tiempos de espera.
+    private static final long POISON_PILL = Long.MIN_VALUE;
+
+    /**
+     * Trabajo real de reproducir un frame en reproduceVirtualFrameConcurrently(), sin la pausa simulada:
+     * lee la imagen principal desde el disco y recorta la región del frame. Lo usan los trabajadores y la
+     * prueba de carga, para que esta mida exactamente el mismo camino.
+     * @return El frame recortado, o null si la imagen principal no se pudo leer.
+     * @throws IOException Si falla la lectura de la imagen.
+     * @throws java.awt.image.RasterFormatException Si la región del frame no cabe en la imagen.
+     */
+    static BufferedImage readAndCropFrame(FrameMetadata frameInfo) throws IOException {
+        BufferedImage mainImg = ImageIO.read(new File(frameInfo.getMainImagePath()));
+        if (mainImg == null) {
+            return null;
+        }
+        return mainImg.getSubimage(frameInfo.getX(), frameInfo.getY(), frameInfo.getWidth(), frameInfo.getHeight());
+    }
+
     // Runnable para la reproducción concurrente de frames virtuales (Caso 2)
     // Cada instancia de esta tarea se ejecuta en un hilo y procesa frames de una cola compartida.
     private static class ReproduceFrameTask implements Runnable {
         private final BlockingQueue<Long> frameQueue;
-        private final BlockingQueue<Boolean> resultsQueue;
+        private final BlockingQueue<FrameResult> resultsQueue;
         private final double reproductionDelaySeconds;
         private final List<FrameMetadata> metadata;
+        private final ConcurrencyGovernor governor; // Puede ser null
 
         // El constructor NO lanza IOException directamente, pero la captura y relanza como RuntimeException
-        public ReproduceFrameTask(BlockingQueue<Long> frameQueue, BlockingQueue<Boolean> resultsQueue,
-                                  String virtualMetadataFile, double reproductionDelaySeconds) {
+        public ReproduceFrameTask(BlockingQueue<Long> frameQueue, BlockingQueue<FrameResult> resultsQueue,
+                                  String virtualMetadataFile, double reproductionDelaySeconds, ConcurrencyGovernor governor) {
             this.frameQueue = frameQueue;
             this.resultsQueue = resultsQueue;
             this.reproductionDelaySeconds = reproductionDelaySeconds;
+            this.governor = governor;
 
             ObjectMapper mapper = new ObjectMapper();
             try {
@@ -159,76 +767,71 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
 
         @Override
         public void run() {
-            BufferedImage mainImg = null; // Declarado aquí para acceso en bloques catch de RasterFormatException
             try {
                 while (true) {
-                    // Intenta obtener un frame de la cola con un tiempo de espera.
-                    // Esto permite que el hilo salga si la cola está vacía y el ejecutor se está apagando.
-                    Long frameId = frameQueue.poll(500, TimeUnit.MILLISECONDS); // Espera 500 ms
-
-                    if (frameId == null) {
-                        // Si no hay más frames disponibles después del tiempo de espera,
-                        // y el hilo actual ha sido interrumpido, significa que debemos terminar.
-                        // Cuando el ExecutorService se apaga, no se enviarán más tareas,
-                        // y los hilos en poll() se despertarán y eventualmente se interrumpirán
-                        // o verán la cola vacía.
-                        if (Thread.currentThread().isInterrupted()) {
-                            break; // Salir del bucle si el hilo ha sido interrumpido
-                        }
-                        // Si la cola está vacía y no hay interrupción, podemos intentar
-                        // otra vez (continue) o salir si hay una señal más explícita
-                        // de que el trabajo ha terminado (que será el shutdown del Executor).
-                        // Por ahora, solo confiar en la interrupción es suficiente con el patrón ExecutorService.
-                        continue;
+                    // Bloquea hasta que haya un frame o la marca de fin; no hay sondeo periódico.
+                    long frameId = frameQueue.take();
+                    if (frameId == POISON_PILL) {
+                        break; // No quedan más frames para este trabajador
                     }
-
-                    // La conversión frameId.intValue() es correcta.
-                    // La comprobación de rango asegura que frameId esté dentro de los límites válidos.
-                    if (!(frameId >= 0 && frameId < metadata.size())) {
-                        System.err.println(String.format("Error de Trabajador (Hilo %d): ID de Frame %d fuera de rango. Tamaño de metadatos: %d", Thread.currentThread().getId(), frameId, metadata.size()));
-                        resultsQueue.put(false);
-                        continue;
+                    if (governor != null) {
+                        governor.acquire(); // El gobernador decide cuántos trabajadores procesan a la vez
                     }
-
-                    FrameMetadata frameInfo = metadata.get(frameId.intValue()); // Usa intValue() para mayor claridad
-
                     try {
-                        // Cada hilo lee la imagen principal (o una porción) desde el disco
-                        mainImg = ImageIO.read(new File(frameInfo.getMainImagePath()));
-                        if (mainImg == null) {
-                            System.err.println(String.format("Error de Trabajador (Hilo %d): Imagen principal '%s' no encontrada o no pudo ser leída para el frame %d.", Thread.currentThread().getId(), frameInfo.getMainImagePath(), frameId));
-                            resultsQueue.put(false);
-                            continue;
+                        reproduceFrame(frameId);
+                    } finally {
+                        if (governor != null) {
+                            governor.release();
                         }
-                        // Recorta la sub-imagen
-                        mainImg.getSubimage(frameInfo.getX(), frameInfo.getY(), frameInfo.getWidth(), frameInfo.getHeight());
-                        // Simula el procesamiento/visualización del frame pausando el hilo
-                        Thread.sleep((long) (reproductionDelaySeconds * 1000));
-                        // System.out.println(String.format("Proceso %d reprodujo el frame %d", Thread.currentThread().getId(), frameId)); // Descomentar para salida detallada por frame
-                        resultsQueue.put(true); // Indica reproducción exitosa
-                    } catch (IOException e) {
-                        System.err.println(String.format("Error de Trabajador (Hilo %d) reproduciendo el frame %d: %s", Thread.currentThread().getId(), frameId, e.getMessage()));
-                        resultsQueue.put(false);
-                    } catch (InterruptedException e) {
-                        System.err.println(String.format("Hilo trabajador %d interrumpido mientras reproducía el frame %d: %s", Thread.currentThread().getId(), frameId, e.getMessage()));
-                        Thread.currentThread().interrupt(); // Restaura el estado de interrupción
-                        resultsQueue.put(false);
-                        break; // Sale del bucle si es interrumpido
-                    } catch (java.awt.image.RasterFormatException e) {
-                        System.err.println(String.format("Error de Trabajador al recortar la imagen para el frame %d (Hilo %d - región inválida): %s. Coordenadas: x=%d, y=%d, ancho=%d, alto=%d. Dimensiones de la imagen principal: %dx%d",
-                            frameId, Thread.currentThread().getId(), e.getMessage(), frameInfo.getX(), frameInfo.getY(), frameInfo.getWidth(), frameInfo.getHeight(),
-                            (mainImg != null ? mainImg.getWidth() : 0), (mainImg != null ? mainImg.getHeight() : 0))); // Agrega dimensiones de la imagen principal para contexto
-                        resultsQueue.put(false);
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        break; // Sale del bucle si fue interrumpido durante la reproducción
                     }
                 }
             } catch (InterruptedException e) {
                 System.err.println(String.format("Hilo trabajador %d interrumpido mientras esperaba frames: %s", Thread.currentThread().getId(), e.getMessage()));
                 Thread.currentThread().interrupt(); // Restaura el estado de interrupción
             }
-            // Nota: La captura de IOException en el método run() para la carga de metadatos se elimina
-            // porque esa excepción específica ahora se maneja en el constructor.
-            // Otras IOExceptions (como ImageIO.read) todavía se manejan dentro del try-catch interno.
-            // Si la RuntimeException del constructor ocurrió, este método run() ni siquiera comenzaría.
+            // Nota: la IOException de la carga de metadatos se maneja en el constructor;
+            // si ocurrió, este método run() ni siquiera comenzaría.
+        }
+
+        // Reproduce un frame y publica su resultado (éxito y latencia) en la cola de resultados.
+        private void reproduceFrame(long frameId) throws InterruptedException {
+            long startNanos = System.nanoTime();
+
+            // La comprobación de rango asegura que frameId esté dentro de los límites válidos.
+            if (!(frameId >= 0 && frameId < metadata.size())) {
+                System.err.println(String.format("Error de Trabajador (Hilo %d): ID de Frame %d fuera de rango. Tamaño de metadatos: %d", Thread.currentThread().getId(), frameId, metadata.size()));
+                resultsQueue.put(new FrameResult(frameId, false, System.nanoTime() - startNanos));
+                return;
+            }
+
+            FrameMetadata frameInfo = metadata.get((int) frameId);
+
+            try {
+                // Lee la imagen principal desde el disco y recorta la sub-imagen
+                if (readAndCropFrame(frameInfo) == null) {
+                    System.err.println(String.format("Error de Trabajador (Hilo %d): Imagen principal '%s' no encontrada o no pudo ser leída para el frame %d.", Thread.currentThread().getId(), frameInfo.getMainImagePath(), frameId));
+                    resultsQueue.put(new FrameResult(frameId, false, System.nanoTime() - startNanos));
+                    return;
+                }
+                // Simula el procesamiento/visualización del frame pausando el hilo
+                Thread.sleep((long) (reproductionDelaySeconds * 1000));
+                // System.out.println(String.format("Proceso %d reprodujo el frame %d", Thread.currentThread().getId(), frameId)); // Descomentar para salida detallada por frame
+                resultsQueue.put(new FrameResult(frameId, true, System.nanoTime() - startNanos)); // Indica reproducción exitosa
+            } catch (IOException e) {
+                System.err.println(String.format("Error de Trabajador (Hilo %d) reproduciendo el frame %d: %s", Thread.currentThread().getId(), frameId, e.getMessage()));
+                resultsQueue.put(new FrameResult(frameId, false, System.nanoTime() - startNanos));
+            } catch (InterruptedException e) {
+                System.err.println(String.format("Hilo trabajador %d interrumpido mientras reproducía el frame %d: %s", Thread.currentThread().getId(), frameId, e.getMessage()));
+                Thread.currentThread().interrupt(); // Restaura el estado de interrupción; run() sale del bucle
+                resultsQueue.offer(new FrameResult(frameId, false, System.nanoTime() - startNanos));
+            } catch (java.awt.image.RasterFormatException e) {
+                System.err.println(String.format("Error de Trabajador al recortar la imagen para el frame %d (Hilo %d - región inválida): %s. Coordenadas: x=%d, y=%d, ancho=%d, alto=%d",
+                    frameId, Thread.currentThread().getId(), e.getMessage(), frameInfo.getX(), frameInfo.getY(), frameInfo.getWidth(), frameInfo.getHeight()));
+                resultsQueue.put(new FrameResult(frameId, false, System.nanoTime() - startNanos));
+            }
         }
     }
 
@@ -243,12 +846,13 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
             return;
         }
 
-        System.out.println(String.format("\n--- Concurrencia: Reproduciendo %d frames virtuales concurrentemente usando %d hilos ---", K_frames_to_reproduce, numProcesses));
+        int numWorkers = poolSize();
+        System.out.println(String.format("\n--- Concurrencia: Reproduciendo %d frames virtuales concurrentemente usando %d hilos ---", K_frames_to_reproduce, numWorkers));
         long startTime = System.currentTimeMillis();
 
         // Colas para la comunicación entre el hilo principal y los hilos trabajadores
         BlockingQueue<Long> frameQueue = new LinkedBlockingQueue<>(); // Tareas a procesar
-        BlockingQueue<Boolean> resultsQueue = new LinkedBlockingQueue<>(); // Resultados de las tareas procesadas
+        BlockingQueue<FrameResult> resultsQueue = new LinkedBlockingQueue<>(); // Resultados (con tiempos) de las tareas procesadas
 
         // Determina el número real de frames a procesar (mínimo de K solicitado y frames totales disponibles)
         List<Long> framesToProcess = new ArrayList<>();
@@ -261,14 +865,14 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
         }
 
         // Crea e inicia los hilos trabajadores
-        ExecutorService executor = Executors.newFixedThreadPool(numProcesses);
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
         // No necesitamos guardar los Futures de los trabajadores si no vamos a cancelarlos o esperar resultados individuales aquí.
 
-        for (int i = 0; i < numProcesses; i++) {
+        for (int i = 0; i < numWorkers; i++) {
             try {
                 // Envía una ReproduceFrameTask al ejecutor
                 // Nota: El constructor lanzará RuntimeException si los metadatos no pueden cargarse.
-                executor.submit(new ReproduceFrameTask(frameQueue, resultsQueue, virtualMetadataFile, reproductionDelay));
+                executor.submit(new ReproduceFrameTask(frameQueue, resultsQueue, virtualMetadataFile, reproductionDelay, concurrencyGovernor));
             } catch (RuntimeException e) { // Captura RuntimeException del constructor
                 System.err.println("Fallo al crear ReproduceFrameTask debido a un error de carga de metadatos: " + e.getMessage());
                 executor.shutdownNow(); // Detiene el ejecutor si los trabajadores no pueden inicializarse
@@ -276,23 +880,42 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
             }
         }
 
-        // Añade IDs de frames a la cola de tareas
-        for (Long frameId : framesToProcess) {
-            try {
+        // Añade IDs de frames a la cola de tareas, seguidos de una marca de fin por trabajador.
+        // Como la cola es FIFO, cada trabajador solo ve su marca después de que se hayan repartido todos los frames.
+        int queuedFrames = 0;
+        try {
+            for (Long frameId : framesToProcess) {
                 frameQueue.put(frameId); // Añade el ID del frame a la cola para que los trabajadores lo recojan
-            } catch (InterruptedException e) {
-                System.err.println("Hilo principal interrumpido mientras añadía frames a la cola: " + e.getMessage());
-                Thread.currentThread().interrupt();
-                break;
+                queuedFrames++;
+            }
+            for (int i = 0; i < numWorkers; i++) {
+                frameQueue.put(POISON_PILL);
             }
+        } catch (InterruptedException e) {
+            System.err.println("Hilo principal interrumpido mientras añadía frames a la cola: " + e.getMessage());
+            Thread.currentThread().interrupt();
         }
 
-        // Espera a que todos los frames sean procesados monitoreando la cola de resultados
+        if (concurrencyGovernor != null) {
+            // Frames pendientes sin contar las marcas de fin: como van al final de la cola FIFO, mientras quede
+            // algún frame siguen estando las numWorkers marcas, así que basta con restarlas.
+            concurrencyGovernor.start("reproducción concurrente", () -> Math.max(0, frameQueue.size() - numWorkers));
+        }
+
+        // Espera a que todos los frames encolados sean procesados monitoreando la cola de resultados
+        LatencyHistogram latencies = new LatencyHistogram(TimeUnit.HOURS.toNanos(1));
         long processedCount = 0;
-        while (processedCount < framesToProcess.size()) {
+        long failedCount = 0;
+        while (processedCount < queuedFrames && !Thread.currentThread().isInterrupted()) {
             try {
-                resultsQueue.take(); // Bloquea hasta que un resultado esté disponible
+                FrameResult result = resultsQueue.take(); // Bloquea hasta que un resultado esté disponible
                 processedCount++;
+                if (result.success) {
+                    latencies.recordValue(result.latencyNanos);
+                } else {
+                    failedCount++;
+                    System.err.println(String.format("Fallo al reproducir el frame %d.", result.frameId));
+                }
                 if (processedCount % 100 == 0) {
                     System.out.println(String.format("Reproducidos %d/%d frames...", processedCount, framesToProcess.size()));
                 }
@@ -303,11 +926,17 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
             }
         }
 
-        // IMPORTANTE: Señaliza a los trabajadores para que salgan APAGANDO EL EJECUTOR.
-        // Los trabajadores, al ver que no hay más tareas en la cola y que el ejecutor
-        // está apagándose, terminarán sus bucles 'while(true)' de forma natural.
-        // Eliminamos el envío de 'null' porque LinkedBlockingQueue no lo soporta.
-        executor.shutdown(); // Inicia el apagado elegante del ejecutor
+        if (concurrencyGovernor != null) {
+            concurrencyGovernor.stop();
+        }
+
+        // Los trabajadores ya han recibido su marca de fin, así que el apagado es inmediato.
+        // Si el hilo principal fue interrumpido, se interrumpe también a los trabajadores.
+        if (Thread.currentThread().isInterrupted()) {
+            executor.shutdownNow();
+        } else {
+            executor.shutdown();
+        }
         try {
             // Espera a que todos los hilos trabajadores terminen sus tareas y finalicen
             if (!executor.awaitTermination(5, TimeUnit.MINUTES)) { // Tiempo máximo de espera: 5 minutos
@@ -321,6 +950,88 @@ public class ParallelProcessor extends SerialProcessor { // Hereda propiedades c
         }
 
         long endTime = System.currentTimeMillis();
-        System.out.println(String.format("Reproducción concurrente completada en %.2f segundos.", (endTime - startTime) / 1000.0));
+        System.out.println(String.format("Reproducción concurrente completada en %.2f segundos (%d fallos).", (endTime - startTime) / 1000.0, failedCount));
+        latencies.printSummary(System.out, "Latencia por frame");
+    }
+
+    /**
+     * Ejecuta una prueba de carga sobre la reproducción de frames virtuales de reproduceVirtualFrameConcurrently():
+     * cada petición hace el mismo trabajo que un trabajador (buscar los metadatos del frame, leer la imagen
+     * principal del disco y recortar la región), sin la pausa simulada. Los metadatos se cargan una sola vez,
+     * igual que en cada trabajador.
+     * @param loadGenerator Configuración de la prueba (modo, tasa, concurrencia, distribución).
+     * @return El resultado con los histogramas de latencia, o null si no se pudo preparar la prueba.
+     */
+    public LoadGenerator.Result runReproductionLoadTest(LoadGenerator loadGenerator) {
+        System.out.println(String.format("\n--- Prueba de carga de reproducción (lectura de imagen + recorte por frame): %s ---", loadGenerator));
+        List<FrameMetadata> metadata = loadMetadataForLoadTest();
+        if (metadata == null) {
+            return null;
+        }
+        return runLoadTest(loadGenerator, metadata.size(), frameId -> {
+            FrameMetadata frameInfo = metadata.get((int) frameId);
+            if (readAndCropFrame(frameInfo) == null) {
+                throw new IOException(String.format("Imagen principal '%s' no encontrada o no pudo ser leída para el frame %d.", frameInfo.getMainImagePath(), frameId));
+            }
+        });
+    }
+
+    /**
+     * Variante de la prueba de carga con la imagen principal ya decodificada en memoria: cada petición solo
+     * busca los metadatos y copia la región de píxeles. Mide el coste del recorte en sí, no el de
+     * reproduceVirtualFrameConcurrently(), que lee la imagen del disco en cada frame.
+     * @param loadGenerator Configuración de la prueba (modo, tasa, concurrencia, distribución).
+     * @return El resultado con los histogramas de latencia, o null si no se pudo preparar la prueba.
+     */
+    public LoadGenerator.Result runPreloadedCropLoadTest(LoadGenerator loadGenerator) {
+        System.out.println(String.format("\n--- Prueba de carga de recorte con imagen precargada: %s ---", loadGenerator));
+        List<FrameMetadata> metadata = loadMetadataForLoadTest();
+        if (metadata == null) {
+            return null;
+        }
+        BufferedImage mainImg;
+        try {
+            mainImg = ImageIO.read(new File(mainImagePath));
+        } catch (IOException e) {
+            System.err.println(String.format("Error al preparar la prueba de carga: %s", e.getMessage()));
+            return null;
+        }
+        if (mainImg == null) {
+            System.err.println("Error: no hay imagen principal para la prueba de carga.");
+            return null;
+        }
+        return runLoadTest(loadGenerator, metadata.size(), frameId -> {
+            FrameMetadata frameInfo = metadata.get((int) frameId);
+            // getData() copia el raster de la región, forzando el trabajo real del recorte.
+            mainImg.getSubimage(frameInfo.getX(), frameInfo.getY(), frameInfo.getWidth(), frameInfo.getHeight()).getData();
+        });
+    }
+
+    private List<FrameMetadata> loadMetadataForLoadTest() {
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            List<FrameMetadata> metadata = mapper.readValue(new File(virtualMetadataFile),
+                    mapper.getTypeFactory().constructCollectionType(List.class, FrameMetadata.class));
+            if (metadata.isEmpty()) {
+                System.err.println("Error: no hay metadatos para la prueba de carga.");
+                return null;
+            }
+            return metadata;
+        } catch (IOException e) {
+            System.err.println(String.format("Error al preparar la prueba de carga: %s", e.getMessage()));
+            return null;
+        }
+    }
+
+    private static LoadGenerator.Result runLoadTest(LoadGenerator loadGenerator, long totalFrames, LoadGenerator.FrameOperation operation) {
+        try {
+            LoadGenerator.Result result = loadGenerator.run(totalFrames, operation);
+            result.printSummary();
+            return result;
+        } catch (InterruptedException e) {
+            System.err.println("La prueba de carga fue interrumpida: " + e.getMessage());
+            Thread.currentThread().interrupt();
+            return null;
+        }
     }
 }
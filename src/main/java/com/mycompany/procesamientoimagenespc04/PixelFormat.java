@@ -0,0 +1,17 @@
+package com.mycompany.procesamientoimagenespc04;
+
+// Formatos de píxeles empaquetados (sin cabecera) que producen los kernels de PixelKernels.
+public enum PixelFormat {
+    GRAY(1),            // Un byte de luminancia por píxel (BT.601: 0.299 R + 0.587 G + 0.114 B).
+    RGB_INTERLEAVED(3), // R, G, B consecutivos por píxel (HxWx3).
+    RGB_PLANAR(3),      // Plano R completo, luego plano G y luego plano B (3xHxW).
+    YCBCR_PLANAR(3);    // Planos Y, Cb, Cr (BT.601, rango limitado 16-235/16-240), como el C444 de Y4M.
+
+    private final int bytesPerPixel;
+
+    PixelFormat(int bytesPerPixel) {
+        this.bytesPerPixel = bytesPerPixel;
+    }
+
+    public int getBytesPerPixel() { return bytesPerPixel; }
+}
@@ -0,0 +1,206 @@
+package com.mycompany.procesamientoimagenespc04;
+
+/**
+ * Kernels de píxeles que trabajan directamente sobre un array int ARGB (un int por píxel, como
+ * DataBufferInt) y recortan la ventana del frame en la misma pasada, sin pasar por getSubimage()
+ * ni por las conversiones genéricas de ColorModel de Java2D.
+ *
+ * Cada kernel tiene una versión escalar y otra SIMD (VectorPixelKernels, API Vector incubadora).
+ * La versión SIMD se usa automáticamente si el módulo jdk.incubator.vector está cargado
+ * (--add-modules jdk.incubator.vector), la CPU tiene vectores nativos de 256 o 512 bits (AVX2 / AVX-512)
+ * y no se ha definido -Dpixelkernels.scalar=true; en hardware de 128 bits se usan las versiones escalares.
+ * Ambas versiones producen exactamente los mismos bytes.
+ *
+ * Ventana: (x, y, w, h) dentro de una imagen de ancho srcWidth; el canal alfa se ignora.
+ */
+public final class PixelKernels {
+
+    // Coeficientes BT.601 en punto fijo (suman 256): gris = (77 R + 150 G + 29 B + 128) >> 8.
+    static final int GRAY_R = 77;
+    static final int GRAY_G = 150;
+    static final int GRAY_B = 29;
+
+    // BT.601 de rango limitado en punto fijo (escala 256), las fórmulas enteras habituales de RGB -> YCbCr:
+    //   Y  = ((66 R + 129 G + 25 B + 128) >> 8) + 16
+    //   Cb = ((-38 R - 74 G + 112 B + 128) >> 8) + 128
+    //   Cr = ((112 R - 94 G - 18 B + 128) >> 8) + 128
+    static final int Y_R = 66, Y_G = 129, Y_B = 25;
+    static final int CB_R = -38, CB_G = -74, CB_B = 112;
+    static final int CR_R = 112, CR_G = -94, CR_B = -18;
+
+    // VectorPixelKernels solo se carga si el módulo está presente (evaluación en cortocircuito).
+    private static final boolean VECTOR_ENABLED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !Boolean.getBoolean("pixelkernels.scalar")
+            && VectorPixelKernels.isHardwareSupported();
+
+    private PixelKernels() {}
+
+    /**
+     * Indica si los kernels están usando la implementación SIMD.
+     */
+    public static boolean isVectorized() {
+        return VECTOR_ENABLED;
+    }
+
+    /**
+     * Copia una ventana de la imagen ARGB a un array compacto de w*h píxeles.
+     */
+    public static void copyWindow(int[] src, int srcWidth, int x, int y, int w, int h, int[] dst) {
+        checkWindow(src, srcWidth, x, y, w, h, dst.length, 1);
+        if (VECTOR_ENABLED) {
+            VectorPixelKernels.copyWindow(src, srcWidth, x, y, w, h, dst);
+        } else {
+            scalarCopyWindow(src, srcWidth, x, y, w, h, dst);
+        }
+    }
+
+    /**
+     * Convierte una ventana a gris (1 byte por píxel).
+     */
+    public static void toGray(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        checkWindow(src, srcWidth, x, y, w, h, dst.length, 1);
+        if (VECTOR_ENABLED) {
+            VectorPixelKernels.toGray(src, srcWidth, x, y, w, h, dst);
+        } else {
+            scalarToGray(src, srcWidth, x, y, w, h, dst);
+        }
+    }
+
+    /**
+     * Desempaqueta una ventana a bytes RGB intercalados (3 bytes por píxel).
+     */
+    public static void toRgbInterleaved(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        checkWindow(src, srcWidth, x, y, w, h, dst.length, 3);
+        if (VECTOR_ENABLED) {
+            VectorPixelKernels.toRgbInterleaved(src, srcWidth, x, y, w, h, dst);
+        } else {
+            scalarToRgbInterleaved(src, srcWidth, x, y, w, h, dst);
+        }
+    }
+
+    /**
+     * Desempaqueta una ventana a tres planos R, G, B consecutivos de w*h bytes cada uno.
+     */
+    public static void toRgbPlanar(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        checkWindow(src, srcWidth, x, y, w, h, dst.length, 3);
+        if (VECTOR_ENABLED) {
+            VectorPixelKernels.toRgbPlanar(src, srcWidth, x, y, w, h, dst);
+        } else {
+            scalarToRgbPlanar(src, srcWidth, x, y, w, h, dst);
+        }
+    }
+
+    /**
+     * Convierte una ventana a tres planos Y, Cb, Cr consecutivos de w*h bytes cada uno (4:4:4).
+     */
+    public static void toYCbCrPlanar(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        checkWindow(src, srcWidth, x, y, w, h, dst.length, 3);
+        if (VECTOR_ENABLED) {
+            VectorPixelKernels.toYCbCrPlanar(src, srcWidth, x, y, w, h, dst);
+        } else {
+            scalarToYCbCrPlanar(src, srcWidth, x, y, w, h, dst);
+        }
+    }
+
+    /**
+     * Extrae una ventana en el formato indicado.
+     * @return Un array nuevo de w * h * format.getBytesPerPixel() bytes.
+     */
+    public static byte[] extract(int[] src, int srcWidth, int x, int y, int w, int h, PixelFormat format) {
+        byte[] dst = new byte[w * h * format.getBytesPerPixel()];
+        switch (format) {
+            case GRAY:
+                toGray(src, srcWidth, x, y, w, h, dst);
+                break;
+            case RGB_INTERLEAVED:
+                toRgbInterleaved(src, srcWidth, x, y, w, h, dst);
+                break;
+            case RGB_PLANAR:
+                toRgbPlanar(src, srcWidth, x, y, w, h, dst);
+                break;
+            case YCBCR_PLANAR:
+                toYCbCrPlanar(src, srcWidth, x, y, w, h, dst);
+                break;
+        }
+        return dst;
+    }
+
+    // --- Implementaciones escalares ---
+
+    static void scalarCopyWindow(int[] src, int srcWidth, int x, int y, int w, int h, int[] dst) {
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(src, (y + row) * srcWidth + x, dst, row * w, w);
+        }
+    }
+
+    static void scalarToGray(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w;
+            for (int i = 0; i < w; i++) {
+                dst[d + i] = gray(src[s + i]);
+            }
+        }
+    }
+
+    static void scalarToRgbInterleaved(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w * 3;
+            for (int i = 0; i < w; i++, d += 3) {
+                int p = src[s + i];
+                dst[d] = (byte) (p >> 16);
+                dst[d + 1] = (byte) (p >> 8);
+                dst[d + 2] = (byte) p;
+            }
+        }
+    }
+
+    static void scalarToRgbPlanar(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        int plane = w * h;
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w;
+            for (int i = 0; i < w; i++) {
+                int p = src[s + i];
+                dst[d + i] = (byte) (p >> 16);
+                dst[plane + d + i] = (byte) (p >> 8);
+                dst[2 * plane + d + i] = (byte) p;
+            }
+        }
+    }
+
+    static void scalarToYCbCrPlanar(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        int plane = w * h;
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w;
+            for (int i = 0; i < w; i++) {
+                int p = src[s + i];
+                int r = (p >> 16) & 0xFF;
+                int g = (p >> 8) & 0xFF;
+                int b = p & 0xFF;
+                dst[d + i] = (byte) (((Y_R * r + Y_G * g + Y_B * b + 128) >> 8) + 16);
+                dst[plane + d + i] = (byte) (((CB_R * r + CB_G * g + CB_B * b + 128) >> 8) + 128);
+                dst[2 * plane + d + i] = (byte) (((CR_R * r + CR_G * g + CR_B * b + 128) >> 8) + 128);
+            }
+        }
+    }
+
+    static byte gray(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = argb & 0xFF;
+        return (byte) ((GRAY_R * r + GRAY_G * g + GRAY_B * b + 128) >> 8);
+    }
+
+    private static void checkWindow(int[] src, int srcWidth, int x, int y, int w, int h, int dstLength, int bytesPerPixel) {
+        if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > srcWidth || (long) (y + h) * srcWidth > src.length) {
+            throw new IllegalArgumentException(String.format("Ventana inválida: x=%d, y=%d, ancho=%d, alto=%d para una imagen de ancho %d y %d píxeles.",
+                    x, y, w, h, srcWidth, src.length));
+        }
+        if (dstLength < w * h * bytesPerPixel) {
+            throw new IllegalArgumentException(String.format("El destino (%d) es menor que la ventana (%d).", dstLength, w * h * bytesPerPixel));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compara el recorte + conversión de frames por la ruta de BufferedImage (getSubimage + drawImage
+ * sobre una imagen TYPE_BYTE_GRAY / TYPE_3BYTE_BGR) con los kernels escalares y SIMD de PixelKernels.
+ *
+ * Ejecutar con: java --add-modules jdk.incubator.vector -cp ... com.mycompany.procesamientoimagenespc04.PixelKernelsBenchmark [ancho alto frameAncho frameAlto iteraciones]
+ * Cada medición va precedida de una fase de calentamiento con el mismo número de iteraciones para que el JIT compile los bucles.
+ */
+public class PixelKernelsBenchmark {
+
+    // Función medida: recorta y convierte el frame en (x, y) y devuelve un valor para que el JIT no la elimine.
+    private interface FrameKernel {
+        int run(int x, int y);
+    }
+
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 1920;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 1080;
+        int frameWidth = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int frameHeight = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+        int iterations = args.length > 4 ? Integer.parseInt(args[4]) : 2000;
+
+        BufferedImage mainImg = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        int[] pixels = ImageUtils.getArgbPixels(mainImg);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt() & 0xFFFFFF;
+        }
+
+        // Posiciones de los frames, las mismas para todas las rutas.
+        int[] xs = new int[iterations];
+        int[] ys = new int[iterations];
+        for (int i = 0; i < iterations; i++) {
+            xs[i] = random.nextInt(width - frameWidth + 1);
+            ys[i] = random.nextInt(height - frameHeight + 1);
+        }
+
+        System.out.println(String.format("Imagen %dx%d, frames %dx%d, %d iteraciones, SIMD %s.",
+                width, height, frameWidth, frameHeight, iterations, PixelKernels.isVectorized() ? "activado" : "no disponible (requiere --add-modules jdk.incubator.vector y vectores nativos de 256/512 bits)"));
+        verify(pixels, width, xs[0], ys[0], frameWidth, frameHeight);
+
+        byte[] gray = new byte[frameWidth * frameHeight];
+        byte[] rgb = new byte[frameWidth * frameHeight * 3];
+        int[] window = new int[frameWidth * frameHeight];
+
+        measure("BufferedImage -> gris", xs, ys, (x, y) -> {
+            BufferedImage out = new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = out.createGraphics();
+            g.drawImage(mainImg.getSubimage(x, y, frameWidth, frameHeight), 0, 0, null);
+            g.dispose();
+            return ((DataBufferByte) out.getRaster().getDataBuffer()).getData()[0];
+        });
+        measure("Escalar -> gris", xs, ys, (x, y) -> {
+            PixelKernels.scalarToGray(pixels, width, x, y, frameWidth, frameHeight, gray);
+            return gray[0];
+        });
+        measure("PixelKernels -> gris", xs, ys, (x, y) -> {
+            PixelKernels.toGray(pixels, width, x, y, frameWidth, frameHeight, gray);
+            return gray[0];
+        });
+
+        measure("BufferedImage -> BGR intercalado", xs, ys, (x, y) -> {
+            BufferedImage out = new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = out.createGraphics();
+            g.drawImage(mainImg.getSubimage(x, y, frameWidth, frameHeight), 0, 0, null);
+            g.dispose();
+            return ((DataBufferByte) out.getRaster().getDataBuffer()).getData()[0];
+        });
+        measure("Escalar -> RGB intercalado", xs, ys, (x, y) -> {
+            PixelKernels.scalarToRgbInterleaved(pixels, width, x, y, frameWidth, frameHeight, rgb);
+            return rgb[0];
+        });
+        measure("PixelKernels -> RGB intercalado", xs, ys, (x, y) -> {
+            PixelKernels.toRgbInterleaved(pixels, width, x, y, frameWidth, frameHeight, rgb);
+            return rgb[0];
+        });
+        measure("Escalar -> RGB planar", xs, ys, (x, y) -> {
+            PixelKernels.scalarToRgbPlanar(pixels, width, x, y, frameWidth, frameHeight, rgb);
+            return rgb[0];
+        });
+        measure("PixelKernels -> RGB planar", xs, ys, (x, y) -> {
+            PixelKernels.toRgbPlanar(pixels, width, x, y, frameWidth, frameHeight, rgb);
+            return rgb[0];
+        });
+        measure("Escalar -> YCbCr planar", xs, ys, (x, y) -> {
+            PixelKernels.scalarToYCbCrPlanar(pixels, width, x, y, frameWidth, frameHeight, rgb);
+            return rgb[0];
+        });
+        measure("PixelKernels -> YCbCr planar", xs, ys, (x, y) -> {
+            PixelKernels.toYCbCrPlanar(pixels, width, x, y, frameWidth, frameHeight, rgb);
+            return rgb[0];
+        });
+
+        measure("BufferedImage getRGB (ventana ARGB)", xs, ys, (x, y) -> {
+            mainImg.getRGB(x, y, frameWidth, frameHeight, window, 0, frameWidth);
+            return window[0];
+        });
+        measure("Escalar (arraycopy) -> ventana ARGB", xs, ys, (x, y) -> {
+            PixelKernels.scalarCopyWindow(pixels, width, x, y, frameWidth, frameHeight, window);
+            return window[0];
+        });
+        measure("PixelKernels -> ventana ARGB", xs, ys, (x, y) -> {
+            PixelKernels.copyWindow(pixels, width, x, y, frameWidth, frameHeight, window);
+            return window[0];
+        });
+    }
+
+    private static void measure(String name, int[] xs, int[] ys, FrameKernel kernel) {
+        int sink = 0;
+        for (int i = 0; i < xs.length; i++) { // Calentamiento
+            sink += kernel.run(xs[i], ys[i]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < xs.length; i++) {
+            sink += kernel.run(xs[i], ys[i]);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-40s %10.1f us/frame  (%d)", name, elapsed / 1000.0 / xs.length, sink & 1));
+    }
+
+    // Comprueba que los kernels en uso (SIMD o escalares) producen los mismos bytes que las versiones escalares.
+    private static void verify(int[] pixels, int width, int x, int y, int w, int h) {
+        byte[] expected = new byte[w * h * 3];
+        byte[] actual = new byte[w * h * 3];
+        PixelKernels.scalarToGray(pixels, width, x, y, w, h, expected);
+        PixelKernels.toGray(pixels, width, x, y, w, h, actual);
+        boolean ok = Arrays.equals(expected, actual);
+        PixelKernels.scalarToRgbInterleaved(pixels, width, x, y, w, h, expected);
+        PixelKernels.toRgbInterleaved(pixels, width, x, y, w, h, actual);
+        ok &= Arrays.equals(expected, actual);
+        PixelKernels.scalarToRgbPlanar(pixels, width, x, y, w, h, expected);
+        PixelKernels.toRgbPlanar(pixels, width, x, y, w, h, actual);
+        ok &= Arrays.equals(expected, actual);
+        PixelKernels.scalarToYCbCrPlanar(pixels, width, x, y, w, h, expected);
+        PixelKernels.toYCbCrPlanar(pixels, width, x, y, w, h, actual);
+        ok &= Arrays.equals(expected, actual);
+        int[] expectedWindow = new int[w * h];
+        int[] actualWindow = new int[w * h];
+        PixelKernels.scalarCopyWindow(pixels, width, x, y, w, h, expectedWindow);
+        PixelKernels.copyWindow(pixels, width, x, y, w, h, actualWindow);
+        ok &= Arrays.equals(expectedWindow, actualWindow);
+        System.out.println(ok ? "Verificación: los kernels coinciden con la versión escalar."
+                : "ERROR de verificación: los kernels no coinciden con la versión escalar.");
+    }
+}
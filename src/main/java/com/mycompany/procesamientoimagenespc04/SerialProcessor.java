@@ -26,6 +26,7 @@ public class SerialProcessor {
     protected final String virtualMetadataFile; // Archivo para los metadatos de los frames virtuales.
     protected final long totalFrames; // Número total de frames posibles.
     protected final int[] mainImageDims; // {ancho, alto} de la imagen principal, leídos del archivo.
+    private ImagePyramid imagePyramid; // Pirámide multirresolución, cargada la primera vez que se pide un frame escalado.
 
     // Constructor que inicializa las propiedades del procesador serial.
     public SerialProcessor(String mainImagePath, int M_MAIN, int N_MAIN, int m_SUB, int n_SUB,
@@ -95,7 +96,7 @@ public class SerialProcessor {
                 // getSubimage usa (x, y, ancho, alto).
                 // Nota: n_SUB es el ancho, m_SUB es la altura.
                 BufferedImage croppedImg = mainImg.getSubimage(x_start, y_start, n_SUB, m_SUB);
-                String framePath = String.format("%s/frame_%05d.png", physicalFramesDir, i); // Ej: frame_00000.png
+                String framePath = String.format("%s/%s", physicalFramesDir, ImageUtils.frameFileName(i, totalFrames)); // Ej: frame_00000.png
                 ImageIO.write(croppedImg, "png", new File(framePath)); // Escribe el frame recortado.
 
                 if ((i + 1) % 10000 == 0) { // Imprime el progreso cada 10,000 frames.
@@ -154,6 +155,58 @@ public class SerialProcessor {
         System.out.println(String.format("Compresión completada en %.2f segundos.", (endTime - startTime) / 1000.0));
     }
 
+    // --- Caso 1 (variante): Generación Serial de Frames Físicos en un Frame Pack ---
+    /**
+     * Genera todos los frames físicos en un único frame pack (archivo de datos + índice)
+     * en lugar de un archivo PNG por frame.
+     */
+    public void generatePhysicalFramesPackSerial() {
+        generatePhysicalFramesPackSerial(0, totalFrames, MainImageProcessor.FRAME_PACK_DATA_PATH, MainImageProcessor.FRAME_PACK_INDEX_PATH);
+    }
+
+    /**
+     * Genera los frames [firstFrame, endFrame) en un frame pack.
+     * @param firstFrame ID del primer frame a generar (inclusivo).
+     * @param endFrame ID del último frame a generar (exclusivo).
+     * @param packDataPath Ruta del archivo de datos del pack.
+     * @param packIndexPath Ruta del archivo de índice del pack.
+     */
+    public void generatePhysicalFramesPackSerial(long firstFrame, long endFrame, String packDataPath, String packIndexPath) {
+        long startTime = System.currentTimeMillis();
+        long frameCount = endFrame - firstFrame;
+        System.out.println(String.format("\n--- Serial: Generando %d frames físicos en el frame pack '%s' ---", frameCount, packDataPath));
+
+        try (FramePackWriter packWriter = new FramePackWriter(Paths.get(packDataPath), Paths.get(packIndexPath), firstFrame, frameCount)) {
+            // Carga la imagen principal una sola vez para el procesamiento serial.
+            BufferedImage mainImg = ImageIO.read(new File(mainImagePath));
+            if (mainImg == null) {
+                System.err.println(String.format("Error: La imagen principal '%s' no pudo ser cargada. No se pueden generar frames.", mainImagePath));
+                return;
+            }
+
+            for (long i = firstFrame; i < endFrame; i++) {
+                int[] coords = ImageUtils.getFrameCoordinates(i, M_MAIN, N_MAIN, m_SUB, n_SUB);
+                BufferedImage croppedImg = mainImg.getSubimage(coords[0], coords[1], n_SUB, m_SUB);
+                packWriter.writeFrame(i, ImageUtils.encodePng(croppedImg)); // Añade el PNG al final del archivo de datos.
+
+                if ((i - firstFrame + 1) % 10000 == 0) { // Imprime el progreso cada 10,000 frames.
+                    System.out.println(String.format("Generados %d/%d frames...", i - firstFrame + 1, frameCount));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("Error durante la generación serial del frame pack: %s", e.getMessage()));
+            e.printStackTrace();
+            return;
+        } catch (java.awt.image.RasterFormatException e) {
+            System.err.println(String.format("Error al recortar la imagen durante la generación serial del frame pack (región inválida): %s. Asegúrate de que las dimensiones de los sub-frames (%dx%d) sean válidas para la imagen principal.", e.getMessage(), n_SUB, m_SUB));
+            e.printStackTrace();
+            return;
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Generación serial del frame pack completada en %.2f segundos.", (endTime - startTime) / 1000.0));
+    }
+
     // --- Caso 2: Indexación y Reproducción Serial de Frames Virtuales ---
     public void generateVirtualFrameMetadataSerial() {
         long startTime = System.currentTimeMillis(); // Marca de tiempo de inicio.
@@ -181,12 +234,12 @@ public class SerialProcessor {
     }
 
     /**
-     * Reproduce un frame virtual cargando sus metadatos y recortando la imagen principal.
-     * @param frameId El ID del frame a reproducir.
-     * @return El BufferedImage recortado que representa el frame, o null si ocurre un error.
-     * @throws IOException Si hay un error al leer archivos (metadatos o imagen principal).
+     * Lee los metadatos de un frame del archivo JSON de metadatos virtuales.
+     * @param frameId El ID del frame.
+     * @return Los metadatos del frame, o null si el ID está fuera de rango.
+     * @throws IOException Si el archivo de metadatos no existe o no puede ser leído.
      */
-    public BufferedImage reproduceVirtualFrameSerial(long frameId) throws IOException {
+    protected FrameMetadata readFrameMetadata(long frameId) throws IOException {
         ObjectMapper mapper = new ObjectMapper(); // Objeto Jackson para operaciones JSON.
         List<FrameMetadata> metadata;
         try {
@@ -204,7 +257,47 @@ public class SerialProcessor {
         }
 
         // Obtiene la información del frame basándose en el ID. La conversión a int es segura aquí.
-        FrameMetadata frameInfo = metadata.get((int) frameId);
+        return metadata.get((int) frameId);
+    }
+
+    /**
+     * Reproduce un frame virtual directamente como bytes empaquetados (gris o RGB), recortando y
+     * convirtiendo en una sola pasada con PixelKernels, sin crear un BufferedImage para el frame.
+     * @param frameId El ID del frame a reproducir.
+     * @param format Formato de los bytes de salida.
+     * @return Los bytes del frame (ancho * alto * bytes por píxel), o null si ocurre un error.
+     * @throws IOException Si hay un error al leer archivos (metadatos o imagen principal).
+     */
+    public byte[] reproduceVirtualFramePixels(long frameId, PixelFormat format) throws IOException {
+        FrameMetadata frameInfo = readFrameMetadata(frameId);
+        if (frameInfo == null) {
+            return null;
+        }
+        BufferedImage mainImg = ImageIO.read(new File(frameInfo.getMainImagePath()));
+        if (mainImg == null) {
+            System.err.println(String.format("Error: Imagen principal '%s' no encontrada o no pudo ser leída para el frame %d.", frameInfo.getMainImagePath(), frameId));
+            return null;
+        }
+        try {
+            return PixelKernels.extract(ImageUtils.getArgbPixels(mainImg), mainImg.getWidth(),
+                    frameInfo.getX(), frameInfo.getY(), frameInfo.getWidth(), frameInfo.getHeight(), format);
+        } catch (IllegalArgumentException e) {
+            System.err.println(String.format("Error al recortar la imagen para el frame %d (región inválida): %s", frameId, e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Reproduce un frame virtual cargando sus metadatos y recortando la imagen principal.
+     * @param frameId El ID del frame a reproducir.
+     * @return El BufferedImage recortado que representa el frame, o null si ocurre un error.
+     * @throws IOException Si hay un error al leer archivos (metadatos o imagen principal).
+     */
+    public BufferedImage reproduceVirtualFrameSerial(long frameId) throws IOException {
+        FrameMetadata frameInfo = readFrameMetadata(frameId);
+        if (frameInfo == null) {
+            return null;
+        }
 
         BufferedImage mainImg = null;
         try {
@@ -226,4 +319,124 @@ public class SerialProcessor {
             return null;
         }
     }
+
+    /**
+     * Construye (o reconstruye) la pirámide multirresolución de la imagen principal junto al archivo de metadatos.
+     * Basta con hacerlo una vez por imagen; reproduceVirtualFrameScaled() la construye si no existe.
+     * @return La pirámide, o null si no se pudo construir.
+     */
+    public ImagePyramid buildImagePyramid() {
+        try {
+            imagePyramid = ImagePyramid.build(mainImagePath, ImagePyramid.directoryFor(mainImagePath, virtualMetadataFile));
+            return imagePyramid;
+        } catch (IOException e) {
+            System.err.println(String.format("Error al construir la pirámide de %s: %s", mainImagePath, e.getMessage()));
+            return null;
+        }
+    }
+
+    // Devuelve la pirámide de la imagen indicada, cargándola del disco (o construyéndola) la primera vez.
+    protected synchronized ImagePyramid getImagePyramid(String imagePath) throws IOException {
+        if (imagePyramid == null || !imagePath.equals(imagePyramid.sourcePath)) {
+            imagePyramid = ImagePyramid.loadOrBuild(imagePath, ImagePyramid.directoryFor(imagePath, virtualMetadataFile));
+        }
+        return imagePyramid;
+    }
+
+    /**
+     * Reproduce un frame virtual a escala reducida recortándolo del nivel más cercano de la pirámide,
+     * en lugar de recortar a resolución completa y redimensionar después.
+     * @param frameId El ID del frame a reproducir.
+     * @param scale Escala del frame (por ejemplo 0.5 para la mitad de ancho y alto); 1 equivale a reproduceVirtualFrameSerial().
+     * @return El frame de tamaño round(ancho * scale) x round(alto * scale), o null si ocurre un error.
+     * @throws IOException Si hay un error al leer archivos (metadatos, pirámide o imagen principal).
+     */
+    public BufferedImage reproduceVirtualFrameScaled(long frameId, double scale) throws IOException {
+        if (!(scale > 0)) {
+            System.err.println(String.format("Error: escala inválida %f para el frame %d.", scale, frameId));
+            return null;
+        }
+        FrameMetadata frameInfo = readFrameMetadata(frameId);
+        if (frameInfo == null) {
+            return null;
+        }
+        ImagePyramid pyramid = getImagePyramid(frameInfo.getMainImagePath());
+        try {
+            return pyramid.crop(frameInfo.getX(), frameInfo.getY(), frameInfo.getWidth(), frameInfo.getHeight(), scale);
+        } catch (java.awt.image.RasterFormatException e) {
+            System.err.println(String.format("Error al recortar la pirámide para el frame %d (región inválida): %s", frameId, e.getMessage()));
+            return null;
+        }
+    }
+
+    // --- Caso 3: Generación de Lotes de Tensores (entrada de entrenamiento) ---
+
+    // Nombre del índice de lotes dentro del directorio de salida (un ShardIndex: lote -> rango de frames).
+    public static final String TENSOR_INDEX_FILE = "tensor_index.json";
+
+    /**
+     * Genera los frames como lotes de tensores float32 (archivos .npy de forma N x H x W x C) aplicando
+     * la transformación fusionada directamente sobre la imagen principal, sin escribir imágenes intermedias.
+     * El directorio de salida incluye un índice (TENSOR_INDEX_FILE) que indica qué frames contiene cada lote.
+     * @param transform Transformación (redimensionado, canales y normalización).
+     * @param batchSize Número de frames por lote.
+     * @param outputDir Directorio de salida.
+     */
+    public void generateTensorBatchesSerial(FrameTensorTransform transform, int batchSize, String outputDir) {
+        long startTime = System.currentTimeMillis();
+        int numBatches = (int) ((totalFrames + batchSize - 1) / batchSize);
+        System.out.println(String.format("\n--- Serial: Generando %d frames como %d lotes de tensores %dx%dx%d ---",
+                totalFrames, numBatches, transform.getOutHeight(), transform.getOutWidth(), transform.getChannels()));
+        ImageUtils.createDirectory(Paths.get(outputDir));
+
+        try {
+            BufferedImage mainImg = ImageIO.read(new File(mainImagePath));
+            if (mainImg == null) {
+                System.err.println(String.format("Error: La imagen principal '%s' no pudo ser cargada. No se pueden generar tensores.", mainImagePath));
+                return;
+            }
+            int[] mainPixels = ImageUtils.getArgbPixels(mainImg);
+            ShardIndex index = new ShardIndex(totalFrames, batchSize);
+            for (int batchIdx = 0; batchIdx < numBatches; batchIdx++) {
+                long first = (long) batchIdx * batchSize;
+                long end = Math.min(totalFrames, first + batchSize);
+                ShardIndex.Shard batch = new ShardIndex.Shard(tensorBatchFileName(batchIdx, numBatches), first, end - first);
+                writeTensorBatch(mainPixels, mainImg.getWidth(), transform, batch, Paths.get(outputDir, batch.file));
+                index.shards.add(batch);
+            }
+            index.write(Paths.get(outputDir, TENSOR_INDEX_FILE));
+        } catch (IOException e) {
+            System.err.println(String.format("Error durante la generación serial de tensores: %s", e.getMessage()));
+            e.printStackTrace();
+            return;
+        } catch (IllegalArgumentException e) {
+            System.err.println(String.format("Error al recortar la imagen durante la generación de tensores (región inválida): %s", e.getMessage()));
+            return;
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Generación serial de tensores completada en %.2f segundos.", (endTime - startTime) / 1000.0));
+    }
+
+    /**
+     * Transforma los frames de un lote y los escribe en un único archivo .npy.
+     */
+    protected void writeTensorBatch(int[] mainPixels, int mainWidth, FrameTensorTransform transform,
+                                    ShardIndex.Shard batch, Path batchFile) throws IOException {
+        int frameSize = transform.getFrameSize();
+        float[] data = new float[(int) batch.frameCount * frameSize];
+        for (int i = 0; i < batch.frameCount; i++) {
+            int[] coords = ImageUtils.getFrameCoordinates(batch.firstFrameId + i, M_MAIN, N_MAIN, m_SUB, n_SUB);
+            // Nota: n_SUB es el ancho, m_SUB es la altura.
+            transform.apply(mainPixels, mainWidth, coords[0], coords[1], n_SUB, m_SUB, data, i * frameSize);
+        }
+        NpyWriter.writeFloat32(batchFile, new long[]{batch.frameCount, transform.getOutHeight(), transform.getOutWidth(), transform.getChannels()},
+                data, data.length);
+    }
+
+    // Nombre del archivo de un lote con relleno suficiente para que el orden alfabético sea el numérico.
+    protected static String tensorBatchFileName(int batchIdx, int numBatches) {
+        int digits = Math.max(5, Integer.toString(Math.max(numBatches - 1, 0)).length());
+        return String.format("batch_%0" + digits + "d.npy", batchIdx);
+    }
 }
@@ -0,0 +1,109 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Índice de archivos fragmentados (shards), serializado por Jackson a JSON.
+// Cada shard cubre un rango contiguo de IDs de frame del mismo tamaño (salvo el último),
+// por lo que el shard de un frame se calcula directamente como frameId / framesPerShard.
+public class ShardIndex {
+    public long totalFrames; // Número total de frames cubiertos por todos los shards
+    public long framesPerShard; // Frames por shard (el último puede tener menos)
+    public List<Shard> shards = new ArrayList<>(); // Shards en orden de ID de frame
+
+    // Descripción de un shard: archivo (relativo al directorio del índice) y rango de frames.
+    public static class Shard {
+        public String file;
+        public long firstFrameId;
+        public long frameCount;
+
+        // Constructor por defecto para Jackson
+        public Shard() {}
+
+        public Shard(String file, long firstFrameId, long frameCount) {
+            this.file = file;
+            this.firstFrameId = firstFrameId;
+            this.frameCount = frameCount;
+        }
+    }
+
+    // Constructor por defecto para Jackson
+    public ShardIndex() {}
+
+    public ShardIndex(long totalFrames, long framesPerShard) {
+        this.totalFrames = totalFrames;
+        this.framesPerShard = framesPerShard;
+    }
+
+    /**
+     * Devuelve el shard que contiene un frame, sin recorrer la lista de shards.
+     * @param frameId El ID del frame.
+     * @return El shard, o null si el ID está fuera de rango.
+     */
+    @JsonIgnore
+    public Shard locate(long frameId) {
+        if (frameId < 0 || frameId >= totalFrames || framesPerShard <= 0) {
+            return null;
+        }
+        return shards.get((int) (frameId / framesPerShard));
+    }
+
+    /**
+     * Construye el nombre de archivo de un shard a partir de un archivo base,
+     * por ejemplo "virtual_frames_metadata.json" -> "virtual_frames_metadata.shard-00003.json".
+     */
+    public static String shardFileName(String baseFile, int shardIdx) {
+        String name = new File(baseFile).getName();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        return String.format("%s.shard-%05d%s", stem, shardIdx, extension);
+    }
+
+    /**
+     * Construye la ruta del índice de shards a partir de un archivo base,
+     * por ejemplo "virtual_frames_metadata.json" -> "virtual_frames_metadata.shards.json".
+     */
+    public static String indexFileName(String baseFile) {
+        int dot = baseFile.lastIndexOf('.');
+        int slash = Math.max(baseFile.lastIndexOf('/'), baseFile.lastIndexOf(File.separatorChar));
+        String stem = dot > slash + 1 ? baseFile.substring(0, dot) : baseFile;
+        return stem + ".shards.json";
+    }
+
+    public static ShardIndex read(Path indexFile) throws IOException {
+        return new ObjectMapper().readValue(indexFile.toFile(), ShardIndex.class);
+    }
+
+    public void write(Path indexFile) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(indexFile.toFile(), this);
+    }
+
+    /**
+     * Lee los metadatos de un frame a partir de un índice de shards de metadatos:
+     * localiza el shard en O(1) y deserializa solo ese archivo.
+     * @param indexFile Ruta del índice de shards.
+     * @param frameId El ID del frame.
+     * @return Los metadatos del frame, o null si el ID está fuera de rango.
+     * @throws IOException Si no se puede leer el índice o el shard.
+     */
+    public static FrameMetadata readFrameMetadata(Path indexFile, long frameId) throws IOException {
+        ShardIndex index = read(indexFile);
+        Shard shard = index.locate(frameId);
+        if (shard == null) {
+            System.err.println(String.format("Error: ID de frame %d fuera de rango (0 a %d).", frameId, index.totalFrames - 1));
+            return null;
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        Path parent = indexFile.toAbsolutePath().getParent();
+        List<FrameMetadata> metadata = mapper.readValue(parent.resolve(shard.file).toFile(),
+                mapper.getTypeFactory().constructCollectionType(List.class, FrameMetadata.class));
+        return metadata.get((int) (frameId - shard.firstFrameId));
+    }
+}
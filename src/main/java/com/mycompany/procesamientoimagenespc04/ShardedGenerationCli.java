@@ -0,0 +1,351 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Generación repartida en N procesos (en la misma máquina o en varias) con un paso final de fusión.
+ *
+ * Cada proceso recibe "shard k de n" y genera solo su rango de IDs de frame, [k*T/n, (k+1)*T/n),
+ * en un subdirectorio propio del directorio de salida: un frame pack con sus frames físicos y/o
+ * un array JSON con sus metadatos. Al terminar escribe shard.json; su presencia indica que el shard
+ * está completo, de modo que un proceso que falle a medias no se confunde con uno terminado.
+ *
+ * La fusión comprueba que estén todos los shards y que sus rangos sean contiguos, copia los packs en
+ * un único pack (y de ahí al ZIP final) y concatena los metadatos validando que los IDs van de 0 a T-1.
+ *
+ * Uso:
+ *   prepare                                            Crea la imagen de prueba si no existe (antes de lanzar los shards).
+ *   generate &lt;k&gt; &lt;n&gt; &lt;dirSalida&gt; [frames|metadata|both] [hilos]
+ *   merge &lt;n&gt; &lt;dirSalida&gt; [frames|metadata|both]
+ * Ver scripts/run_local_shards.sh para lanzar varias JVM en una sola máquina.
+ */
+public class ShardedGenerationCli {
+
+    public static final String SHARD_MANIFEST_FILE = "shard.json";
+
+    // Manifiesto escrito por cada shard al terminar; lo lee la fusión.
+    public static class ShardManifest {
+        public int shard;
+        public int numShards;
+        public long totalFrames;
+        public long firstFrameId;
+        public long frameCount;
+        public boolean frames;   // Se generó el frame pack del shard
+        public boolean metadata; // Se generaron los metadatos del shard
+
+        // Constructor por defecto para Jackson
+        public ShardManifest() {}
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(2);
+        }
+        boolean ok;
+        try {
+            switch (args[0]) {
+                case "prepare":
+                    ImageUtils.createDummyMainImage(MainImageProcessor.MAIN_IMAGE_PATH, MainImageProcessor.N_MAIN, MainImageProcessor.M_MAIN);
+                    ok = true;
+                    break;
+                case "generate":
+                    if (args.length < 4) {
+                        printUsage();
+                        System.exit(2);
+                    }
+                    int shard = Integer.parseInt(args[1]);
+                    int numShards = Integer.parseInt(args[2]);
+                    checkShard(shard, numShards); // Antes de usar n para repartir los núcleos
+                    int threads = args.length > 5 ? Integer.parseInt(args[5])
+                            : Math.max(1, Runtime.getRuntime().availableProcessors() / numShards);
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("Número de hilos inválido: " + threads);
+                    }
+                    ok = generate(shard, numShards, Paths.get(args[3]), args.length > 4 ? args[4] : "both", threads);
+                    break;
+                case "merge":
+                    if (args.length < 3) {
+                        printUsage();
+                        System.exit(2);
+                    }
+                    ok = merge(Integer.parseInt(args[1]), Paths.get(args[2]), args.length > 3 ? args[3] : "both");
+                    break;
+                default:
+                    printUsage();
+                    ok = false;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            ok = false;
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso:");
+        System.err.println("  prepare");
+        System.err.println("  generate <k> <n> <dirSalida> [frames|metadata|both] [hilos]");
+        System.err.println("  merge <n> <dirSalida> [frames|metadata|both]");
+    }
+
+    /**
+     * Calcula el rango de frames del shard k de n: {primero (inclusivo), último (exclusivo)}.
+     * Los rangos de los n shards son contiguos y sus tamaños difieren como mucho en 1.
+     */
+    public static long[] shardRange(long totalFrames, int shard, int numShards) {
+        checkShard(shard, numShards);
+        return new long[]{totalFrames * shard / numShards, totalFrames * (shard + 1) / numShards};
+    }
+
+    // Comprueba que n >= 1 y 0 <= k < n.
+    private static void checkShard(int shard, int numShards) {
+        checkNumShards(numShards);
+        if (shard < 0 || shard >= numShards) {
+            throw new IllegalArgumentException(String.format("Shard %d de %d inválido.", shard, numShards));
+        }
+    }
+
+    private static void checkNumShards(int numShards) {
+        if (numShards < 1) {
+            throw new IllegalArgumentException(String.format("Número de shards inválido (debe ser al menos 1): %d.", numShards));
+        }
+    }
+
+    // Directorio del shard k de n dentro del directorio de salida.
+    public static Path shardDir(Path outputDir, int shard, int numShards) {
+        return outputDir.resolve(String.format("shard-%05d-of-%05d", shard, numShards));
+    }
+
+    private static boolean includesFrames(String what) {
+        checkWhat(what);
+        return !what.equals("metadata");
+    }
+
+    private static boolean includesMetadata(String what) {
+        checkWhat(what);
+        return !what.equals("frames");
+    }
+
+    private static void checkWhat(String what) {
+        if (!what.equals("frames") && !what.equals("metadata") && !what.equals("both")) {
+            throw new IllegalArgumentException("Tipo de salida desconocido (usar frames, metadata o both): " + what);
+        }
+    }
+
+    /**
+     * Genera las salidas del shard k de n en su subdirectorio del directorio de salida.
+     * @return true si el shard se completó y se escribió su manifiesto.
+     */
+    public static boolean generate(int shard, int numShards, Path outputDir, String what, int threads) {
+        long totalFrames = ImageUtils.calculateTotalFrames(MainImageProcessor.M_MAIN, MainImageProcessor.N_MAIN,
+                MainImageProcessor.m_SUB, MainImageProcessor.n_SUB);
+        long[] range = shardRange(totalFrames, shard, numShards);
+        boolean frames = includesFrames(what);
+        boolean metadata = includesMetadata(what);
+        Path dir = shardDir(outputDir, shard, numShards);
+        System.out.println(String.format("Shard %d de %d: frames [%d, %d) de %d en %s", shard, numShards, range[0], range[1], totalFrames, dir));
+
+        long startTime = System.currentTimeMillis();
+        try {
+            Files.createDirectories(dir);
+            Files.deleteIfExists(dir.resolve(SHARD_MANIFEST_FILE)); // Un shard relanzado deja de contar como terminado.
+        } catch (IOException e) {
+            System.err.println(String.format("Error al preparar el directorio del shard %s: %s", dir, e.getMessage()));
+            return false;
+        }
+
+        ParallelProcessor processor = new ParallelProcessor(MainImageProcessor.MAIN_IMAGE_PATH, MainImageProcessor.M_MAIN,
+                MainImageProcessor.N_MAIN, MainImageProcessor.m_SUB, MainImageProcessor.n_SUB,
+                dir.resolve(MainImageProcessor.PHYSICAL_FRAMES_DIR).toString(),
+                dir.resolve(MainImageProcessor.VIRTUAL_METADATA_FILE).toString(), threads);
+
+        if (frames) {
+            Path data = dir.resolve(MainImageProcessor.FRAME_PACK_DATA_PATH);
+            Path index = dir.resolve(MainImageProcessor.FRAME_PACK_INDEX_PATH);
+            processor.generatePhysicalFramesPackParallel(range[0], range[1], data.toString(), index.toString());
+            try (FramePackReader reader = new FramePackReader(data, index)) {
+                long missing = reader.countMissingFrames();
+                if (missing > 0) {
+                    System.err.println(String.format("Error: faltan %d frames en el pack del shard %d.", missing, shard));
+                    return false;
+                }
+            } catch (IOException e) {
+                System.err.println(String.format("Error al verificar el pack del shard %d: %s", shard, e.getMessage()));
+                return false;
+            }
+        }
+        if (metadata && !processor.generateVirtualFrameMetadataParallel(range[0], range[1],
+                dir.resolve(MainImageProcessor.VIRTUAL_METADATA_FILE).toString())) {
+            return false;
+        }
+
+        ShardManifest manifest = new ShardManifest();
+        manifest.shard = shard;
+        manifest.numShards = numShards;
+        manifest.totalFrames = totalFrames;
+        manifest.firstFrameId = range[0];
+        manifest.frameCount = range[1] - range[0];
+        manifest.frames = frames;
+        manifest.metadata = metadata;
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(dir.resolve(SHARD_MANIFEST_FILE).toFile(), manifest);
+        } catch (IOException e) {
+            System.err.println(String.format("Error al escribir el manifiesto del shard %d: %s", shard, e.getMessage()));
+            return false;
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Shard %d de %d completado en %.2f segundos.", shard, numShards, (endTime - startTime) / 1000.0));
+        return true;
+    }
+
+    /**
+     * Fusiona las salidas de los n shards en el pack, el ZIP y el archivo de metadatos finales
+     * (con los nombres de MainImageProcessor, dentro del directorio de salida) y verifica que estén completos.
+     * @return true si la fusión y la verificación fueron correctas.
+     */
+    public static boolean merge(int numShards, Path outputDir, String what) {
+        checkNumShards(numShards);
+        long startTime = System.currentTimeMillis();
+        boolean frames = includesFrames(what);
+        boolean metadata = includesMetadata(what);
+        System.out.println(String.format("\n--- Fusionando %d shards de %s ---", numShards, outputDir));
+
+        // Comprueba que todos los shards terminaron y que sus rangos cubren [0, T) sin huecos ni solapes.
+        ObjectMapper mapper = new ObjectMapper();
+        ShardManifest[] manifests = new ShardManifest[numShards];
+        long expectedFirst = 0;
+        for (int k = 0; k < numShards; k++) {
+            Path manifestPath = shardDir(outputDir, k, numShards).resolve(SHARD_MANIFEST_FILE);
+            if (!Files.exists(manifestPath)) {
+                System.err.println(String.format("Error: el shard %d no ha terminado (no existe %s).", k, manifestPath));
+                return false;
+            }
+            try {
+                manifests[k] = mapper.readValue(manifestPath.toFile(), ShardManifest.class);
+            } catch (IOException e) {
+                System.err.println(String.format("Error al leer el manifiesto %s: %s", manifestPath, e.getMessage()));
+                return false;
+            }
+            ShardManifest m = manifests[k];
+            if (m.shard != k || m.numShards != numShards || m.totalFrames != manifests[0].totalFrames || m.firstFrameId != expectedFirst) {
+                System.err.println(String.format("Error: el manifiesto %s no encaja (shard %d de %d, frames [%d, %d) de %d; se esperaba el shard %d de %d desde el frame %d).",
+                        manifestPath, m.shard, m.numShards, m.firstFrameId, m.firstFrameId + m.frameCount, m.totalFrames, k, numShards, expectedFirst));
+                return false;
+            }
+            if ((frames && !m.frames) || (metadata && !m.metadata)) {
+                System.err.println(String.format("Error: el shard %d no generó todas las salidas pedidas (%s).", k, what));
+                return false;
+            }
+            expectedFirst += m.frameCount;
+        }
+        long totalFrames = manifests[0].totalFrames;
+        if (expectedFirst != totalFrames) {
+            System.err.println(String.format("Error: los shards cubren %d frames de %d.", expectedFirst, totalFrames));
+            return false;
+        }
+
+        if (frames && !mergeFramePacks(manifests, outputDir, totalFrames)) {
+            return false;
+        }
+        if (metadata && !mergeMetadata(manifests, outputDir, totalFrames)) {
+            return false;
+        }
+
+        long endTime = System.currentTimeMillis();
+        System.out.println(String.format("Fusión de %d shards (%d frames) completada y verificada en %.2f segundos.",
+                numShards, totalFrames, (endTime - startTime) / 1000.0));
+        return true;
+    }
+
+    private static boolean mergeFramePacks(ShardManifest[] manifests, Path outputDir, long totalFrames) {
+        Path data = outputDir.resolve(MainImageProcessor.FRAME_PACK_DATA_PATH);
+        Path index = outputDir.resolve(MainImageProcessor.FRAME_PACK_INDEX_PATH);
+        try {
+            long copied = 0;
+            try (FramePackWriter writer = new FramePackWriter(data, index, 0, totalFrames)) {
+                for (ShardManifest m : manifests) {
+                    Path dir = shardDir(outputDir, m.shard, m.numShards);
+                    try (FramePackReader part = new FramePackReader(dir.resolve(MainImageProcessor.FRAME_PACK_DATA_PATH),
+                            dir.resolve(MainImageProcessor.FRAME_PACK_INDEX_PATH))) {
+                        if (part.getFirstFrameId() != m.firstFrameId || part.getFrameCount() != m.frameCount) {
+                            System.err.println(String.format("Error: el pack del shard %d no coincide con su manifiesto.", m.shard));
+                            return false;
+                        }
+                        copied += writer.appendPack(part);
+                    }
+                }
+            }
+
+            try (FramePackReader merged = new FramePackReader(data, index)) {
+                long missing = merged.countMissingFrames();
+                if (copied != totalFrames || missing > 0) {
+                    System.err.println(String.format("Error: el pack fusionado tiene %d de %d frames (%d ausentes).", copied, totalFrames, missing));
+                    return false;
+                }
+                System.out.println(String.format("Frame pack fusionado: %d frames en '%s'.", copied, data));
+                Path zip = outputDir.resolve(MainImageProcessor.COMPRESSED_ARCHIVE_PATH);
+                long zipped = merged.extractToZip(zip);
+                System.out.println(String.format("Archivo final: %d frames en '%s'.", zipped, zip));
+                return zipped == totalFrames;
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("Error al fusionar los frame packs: %s", e.getMessage()));
+            return false;
+        }
+    }
+
+    // Concatena los arrays JSON de los shards leyéndolos en streaming y comprobando que los IDs son consecutivos.
+    private static boolean mergeMetadata(ShardManifest[] manifests, Path outputDir, long totalFrames) {
+        Path output = outputDir.resolve(MainImageProcessor.VIRTUAL_METADATA_FILE);
+        ObjectMapper mapper = new ObjectMapper();
+        long expectedId = 0;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output.toFile()), 1 << 20);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (ShardManifest m : manifests) {
+                Path shardFile = shardDir(outputDir, m.shard, m.numShards).resolve(MainImageProcessor.VIRTUAL_METADATA_FILE);
+                try (JsonParser parser = mapper.getFactory().createParser(shardFile.toFile())) {
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        System.err.println(String.format("Error: %s no contiene un array JSON.", shardFile));
+                        return false;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        FrameMetadata frame = mapper.readValue(parser, FrameMetadata.class);
+                        if (frame.getId() != expectedId) {
+                            System.err.println(String.format("Error: en %s se esperaba el frame %d y se encontró el %d.", shardFile, expectedId, frame.getId()));
+                            return false;
+                        }
+                        generator.writeObject(frame);
+                        expectedId++;
+                    }
+                }
+                if (expectedId != m.firstFrameId + m.frameCount) {
+                    System.err.println(String.format("Error: %s termina en el frame %d, se esperaba %d.", shardFile, expectedId, m.firstFrameId + m.frameCount));
+                    return false;
+                }
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            System.err.println(String.format("Error al fusionar los metadatos: %s", e.getMessage()));
+            return false;
+        }
+        if (expectedId != totalFrames) {
+            System.err.println(String.format("Error: los metadatos fusionados tienen %d de %d frames.", expectedId, totalFrames));
+            return false;
+        }
+        System.out.println(String.format("Metadatos fusionados: %d frames en '%s'.", expectedId, output));
+        return true;
+    }
+}
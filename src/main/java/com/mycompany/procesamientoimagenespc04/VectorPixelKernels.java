@@ -0,0 +1,183 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Versiones SIMD de los kernels de PixelKernels (API Vector, módulo jdk.incubator.vector).
+ * Solo se debe llamar a esta clase a través de PixelKernels, que comprueba si el módulo está disponible
+ * y valida las ventanas. Las colas de cada fila que no llenan un vector se procesan de forma escalar.
+ */
+final class VectorPixelKernels {
+
+    // Forma de vector nativa de la CPU (la que C2 compila a instrucciones SIMD). Con formas mayores que la
+    // nativa, la API Vector no se intrínseca y cae a una implementación Java mucho más lenta que el bucle escalar.
+    private static final int PREFERRED_BITS = IntVector.SPECIES_PREFERRED.vectorBitSize();
+    // 8 píxeles por vector con AVX2 y 16 con AVX-512. Con vectores nativos de 128 bits (SSE, NEON) no se usa
+    // esta clase (ver isHardwareSupported()): 4 lanes de bytes no forman una especie de byte válida.
+    // En ese caso se fija SPECIES_256 solo para que la inicialización de la clase no falle.
+    private static final VectorSpecies<Integer> INT_SPECIES =
+            isHardwareSupported() ? IntVector.SPECIES_PREFERRED : IntVector.SPECIES_256;
+    // Un byte por píxel: mismo número de lanes que INT_SPECIES, para convertir int -> byte lane a lane.
+    private static final VectorSpecies<Byte> BYTE_SPECIES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(INT_SPECIES.length() * 8));
+    // Los 4 bytes de cada píxel (B, G, R, A en orden little-endian): mismo tamaño en bits que INT_SPECIES.
+    private static final VectorSpecies<Byte> PIXEL_BYTES_SPECIES = INT_SPECIES.withLanes(byte.class);
+    // Reordena B,G,R,A por píxel a R,G,B consecutivos; los últimos 'lanes' bytes del vector quedan como relleno.
+    private static final VectorShuffle<Byte> BGRA_TO_RGB = VectorShuffle.fromOp(PIXEL_BYTES_SPECIES, j -> {
+        int pixel = j / 3;
+        return pixel < INT_SPECIES.length() ? pixel * 4 + (2 - j % 3) : 0;
+    });
+
+    private VectorPixelKernels() {}
+
+    /**
+     * Indica si la forma de vector nativa permite usar estos kernels (256 o 512 bits).
+     * En hardware de 128 bits (o en formas no estándar) PixelKernels usa las versiones escalares.
+     */
+    static boolean isHardwareSupported() {
+        return PREFERRED_BITS == 256 || PREFERRED_BITS == 512;
+    }
+
+    static void copyWindow(int[] src, int srcWidth, int x, int y, int w, int h, int[] dst) {
+        int lanes = INT_SPECIES.length();
+        int bound = INT_SPECIES.loopBound(w);
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w;
+            int i = 0;
+            for (; i < bound; i += lanes) {
+                IntVector.fromArray(INT_SPECIES, src, s + i).intoArray(dst, d + i);
+            }
+            for (; i < w; i++) {
+                dst[d + i] = src[s + i];
+            }
+        }
+    }
+
+    static void toGray(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        int lanes = INT_SPECIES.length();
+        int bound = INT_SPECIES.loopBound(w);
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w;
+            int i = 0;
+            for (; i < bound; i += lanes) {
+                IntVector p = IntVector.fromArray(INT_SPECIES, src, s + i);
+                IntVector gray = red(p).mul(PixelKernels.GRAY_R)
+                        .add(green(p).mul(PixelKernels.GRAY_G))
+                        .add(blue(p).mul(PixelKernels.GRAY_B))
+                        .add(128)
+                        .lanewise(VectorOperators.LSHR, 8);
+                toBytes(gray).intoArray(dst, d + i);
+            }
+            for (; i < w; i++) {
+                dst[d + i] = PixelKernels.gray(src[s + i]);
+            }
+        }
+    }
+
+    static void toRgbInterleaved(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        int lanes = INT_SPECIES.length();
+        int bound = INT_SPECIES.loopBound(w);
+        int windowEnd = w * h * 3; // dst puede ser mayor que la ventana; no se escribe nada a partir de aquí
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w * 3;
+            int i = 0;
+            // Cada iteración escribe 4*lanes bytes pero solo 3*lanes son válidos; el relleno lo sobrescribe
+            // la iteración (o la fila) siguiente, así que el almacenamiento debe quedar dentro de la ventana.
+            for (; i < bound && d + i * 3 + PIXEL_BYTES_SPECIES.length() <= windowEnd; i += lanes) {
+                IntVector p = IntVector.fromArray(INT_SPECIES, src, s + i);
+                p.reinterpretAsBytes().rearrange(BGRA_TO_RGB).intoArray(dst, d + i * 3);
+            }
+            for (; i < w; i++) {
+                int p = src[s + i];
+                int o = d + i * 3;
+                dst[o] = (byte) (p >> 16);
+                dst[o + 1] = (byte) (p >> 8);
+                dst[o + 2] = (byte) p;
+            }
+        }
+    }
+
+    static void toRgbPlanar(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        int lanes = INT_SPECIES.length();
+        int bound = INT_SPECIES.loopBound(w);
+        int plane = w * h;
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w;
+            int i = 0;
+            for (; i < bound; i += lanes) {
+                IntVector p = IntVector.fromArray(INT_SPECIES, src, s + i);
+                toBytes(red(p)).intoArray(dst, d + i);
+                toBytes(green(p)).intoArray(dst, plane + d + i);
+                toBytes(blue(p)).intoArray(dst, 2 * plane + d + i);
+            }
+            for (; i < w; i++) {
+                int p = src[s + i];
+                dst[d + i] = (byte) (p >> 16);
+                dst[plane + d + i] = (byte) (p >> 8);
+                dst[2 * plane + d + i] = (byte) p;
+            }
+        }
+    }
+
+    static void toYCbCrPlanar(int[] src, int srcWidth, int x, int y, int w, int h, byte[] dst) {
+        int lanes = INT_SPECIES.length();
+        int bound = INT_SPECIES.loopBound(w);
+        int plane = w * h;
+        for (int row = 0; row < h; row++) {
+            int s = (y + row) * srcWidth + x;
+            int d = row * w;
+            int i = 0;
+            for (; i < bound; i += lanes) {
+                IntVector p = IntVector.fromArray(INT_SPECIES, src, s + i);
+                IntVector r = red(p);
+                IntVector g = green(p);
+                IntVector b = blue(p);
+                // Desplazamiento aritmético: Cb y Cr tienen productos negativos antes de sumar 128.
+                IntVector luma = r.mul(PixelKernels.Y_R).add(g.mul(PixelKernels.Y_G)).add(b.mul(PixelKernels.Y_B))
+                        .add(128).lanewise(VectorOperators.ASHR, 8).add(16);
+                IntVector cb = r.mul(PixelKernels.CB_R).add(g.mul(PixelKernels.CB_G)).add(b.mul(PixelKernels.CB_B))
+                        .add(128).lanewise(VectorOperators.ASHR, 8).add(128);
+                IntVector cr = r.mul(PixelKernels.CR_R).add(g.mul(PixelKernels.CR_G)).add(b.mul(PixelKernels.CR_B))
+                        .add(128).lanewise(VectorOperators.ASHR, 8).add(128);
+                toBytes(luma).intoArray(dst, d + i);
+                toBytes(cb).intoArray(dst, plane + d + i);
+                toBytes(cr).intoArray(dst, 2 * plane + d + i);
+            }
+            for (; i < w; i++) {
+                int p = src[s + i];
+                int r = (p >> 16) & 0xFF;
+                int g = (p >> 8) & 0xFF;
+                int b = p & 0xFF;
+                dst[d + i] = (byte) (((PixelKernels.Y_R * r + PixelKernels.Y_G * g + PixelKernels.Y_B * b + 128) >> 8) + 16);
+                dst[plane + d + i] = (byte) (((PixelKernels.CB_R * r + PixelKernels.CB_G * g + PixelKernels.CB_B * b + 128) >> 8) + 128);
+                dst[2 * plane + d + i] = (byte) (((PixelKernels.CR_R * r + PixelKernels.CR_G * g + PixelKernels.CR_B * b + 128) >> 8) + 128);
+            }
+        }
+    }
+
+    private static IntVector red(IntVector argb) {
+        return argb.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+    }
+
+    private static IntVector green(IntVector argb) {
+        return argb.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+    }
+
+    private static IntVector blue(IntVector argb) {
+        return argb.and(0xFF);
+    }
+
+    // Estrecha cada lane de 32 bits a 8 bits (los valores ya están en 0..255).
+    private static ByteVector toBytes(IntVector values) {
+        return (ByteVector) values.convertShape(VectorOperators.I2B, BYTE_SPECIES, 0);
+    }
+}
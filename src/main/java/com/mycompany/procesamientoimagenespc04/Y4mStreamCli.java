@@ -0,0 +1,34 @@
+package com.mycompany.procesamientoimagenespc04;
+
+/**
+ * Genera todos los frames de la imagen principal como un flujo de vídeo Y4M, a un archivo o a la salida estándar.
+ *
+ * Uso: Y4mStreamCli &lt;salida.y4m|-&gt; [color|gray] [fps] [hilos]
+ * Ejemplo (sin escribir ningún archivo por frame):
+ *   java -cp ... com.mycompany.procesamientoimagenespc04.Y4mStreamCli - | ffmpeg -i - -c:v libx264 frames.mp4
+ * Con salida "-", todos los mensajes se escriben en la salida de error para no mezclarse con el vídeo.
+ */
+public class Y4mStreamCli {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Uso: Y4mStreamCli <salida.y4m|-> [color|gray] [fps] [hilos]");
+            System.exit(2);
+        }
+        String output = args[0];
+        if (output.equals("-")) {
+            System.setOut(System.err); // La salida estándar queda reservada para el flujo de vídeo.
+        }
+        PixelFormat format = args.length > 1 && args[1].equals("gray") ? PixelFormat.GRAY : PixelFormat.YCBCR_PLANAR;
+        int fps = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        ParallelProcessor processor = new ParallelProcessor(MainImageProcessor.MAIN_IMAGE_PATH, MainImageProcessor.M_MAIN,
+                MainImageProcessor.N_MAIN, MainImageProcessor.m_SUB, MainImageProcessor.n_SUB,
+                MainImageProcessor.PHYSICAL_FRAMES_DIR, MainImageProcessor.VIRTUAL_METADATA_FILE, threads);
+        if (processor.getMainImageDims() == null) {
+            System.exit(1);
+        }
+        System.exit(processor.generateY4mStreamParallel(output, format, fps) ? 0 : 1);
+    }
+}
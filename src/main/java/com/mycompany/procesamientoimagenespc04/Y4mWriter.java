@@ -0,0 +1,70 @@
+package com.mycompany.procesamientoimagenespc04;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escribe un flujo de vídeo sin comprimir en formato YUV4MPEG2 (.y4m), que leen directamente
+ * herramientas como ffmpeg o mpv: una cabecera de texto y, por cada frame, "FRAME\n" seguido de sus planos.
+ *
+ * Se admiten dos espacios de color: C444 (planos Y, Cb, Cr completos, PixelFormat.YCBCR_PLANAR)
+ * y Cmono (un único plano de luminancia, PixelFormat.GRAY).
+ */
+public class Y4mWriter implements Closeable {
+
+    private static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final int frameSize; // Bytes de los planos de un frame
+    private long framesWritten = 0;
+
+    /**
+     * Escribe la cabecera del flujo.
+     * @param out Flujo de destino (conviene que tenga buffer); se cierra al cerrar el escritor.
+     * @param width Ancho de los frames.
+     * @param height Altura de los frames.
+     * @param fps Frames por segundo declarados en la cabecera.
+     * @param format PixelFormat.YCBCR_PLANAR (C444) o PixelFormat.GRAY (Cmono).
+     * @throws IOException Si falla la escritura.
+     */
+    public Y4mWriter(OutputStream out, int width, int height, int fps, PixelFormat format) throws IOException {
+        String colorSpace;
+        if (format == PixelFormat.YCBCR_PLANAR) {
+            colorSpace = "C444";
+        } else if (format == PixelFormat.GRAY) {
+            colorSpace = "Cmono";
+        } else {
+            throw new IllegalArgumentException("Formato no soportado en Y4M (usar YCBCR_PLANAR o GRAY): " + format);
+        }
+        this.out = out;
+        this.frameSize = width * height * format.getBytesPerPixel();
+        // Progresivo (Ip) y píxeles cuadrados (A1:1).
+        String header = String.format("YUV4MPEG2 W%d H%d F%d:1 Ip A1:1 %s\n", width, height, fps, colorSpace);
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Escribe un frame a partir de sus planos, ya convertidos al formato del flujo.
+     * @param planes Array con los planos del frame.
+     * @param offset Posición del frame dentro del array (permite escribir frames de un bloque sin copiarlos).
+     * @throws IOException Si falla la escritura.
+     */
+    public void writeFrame(byte[] planes, int offset) throws IOException {
+        if (offset < 0 || offset + frameSize > planes.length) {
+            throw new IllegalArgumentException(String.format("El frame (%d bytes desde %d) no cabe en un array de %d bytes.", frameSize, offset, planes.length));
+        }
+        out.write(FRAME_HEADER);
+        out.write(planes, offset, frameSize);
+        framesWritten++;
+    }
+
+    public int getFrameSize() { return frameSize; }
+    public long getFramesWritten() { return framesWritten; }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}